@@ -0,0 +1,125 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.jsonldjava.core.DocumentLoader;
+import com.github.jsonldjava.core.JsonLdError;
+import com.github.jsonldjava.core.RemoteDocument;
+import com.github.jsonldjava.utils.JsonUtils;
+
+/**
+ * Loads remote JSON-LD contexts once per execution. Contexts are looked up in memory,
+ * then in the offline context directory and only then fetched from the web, if that is
+ * allowed. Fetched contexts are stored into the context directory, so later executions
+ * can run offline.
+ *
+ * A file in the context directory is named by the URL encoded (UTF-8) context URL,
+ * optionally with a ".jsonld" extension, e.g. {@code http%3A%2F%2Fschema.org%2F.jsonld}.
+ *
+ * Parsed contexts are shared by all documents and threads, jsonld-java only reads them.
+ */
+public class CachingDocumentLoader extends DocumentLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingDocumentLoader.class);
+
+    private static final String EXTENSION = ".jsonld";
+
+    private final ConcurrentMap<String, RemoteDocument> cache = new ConcurrentHashMap<>();
+
+    private final File contextDirectory;
+
+    private final boolean remoteAllowed;
+
+    /**
+     * @param contextDirectory
+     *        Offline context store, may be null.
+     * @param remoteAllowed
+     *        If false then contexts missing in the context directory fail the document.
+     */
+    public CachingDocumentLoader(File contextDirectory, boolean remoteAllowed) {
+        this.contextDirectory = contextDirectory;
+        this.remoteAllowed = remoteAllowed;
+    }
+
+    @Override
+    public RemoteDocument loadDocument(String url) throws JsonLdError {
+        RemoteDocument document = cache.get(url);
+        if (document != null) {
+            return document;
+        }
+        document = loadOffline(url);
+        if (document == null) {
+            if (!remoteAllowed) {
+                throw new JsonLdError(JsonLdError.Error.LOADING_REMOTE_CONTEXT_FAILED,
+                        "Context not in the context directory and remote contexts are not allowed: " + url);
+            }
+            LOG.info("Fetching remote context: {}", url);
+            document = super.loadDocument(url);
+            storeOffline(url, document);
+        }
+        RemoteDocument previous = cache.putIfAbsent(url, document);
+        return previous == null ? document : previous;
+    }
+
+    private RemoteDocument loadOffline(String url) throws JsonLdError {
+        if (contextDirectory == null) {
+            return null;
+        }
+        File file = new File(contextDirectory, fileName(url) + EXTENSION);
+        if (!file.isFile()) {
+            file = new File(contextDirectory, fileName(url));
+        }
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            LOG.debug("Context {} loaded from {}", url, file);
+            return new RemoteDocument(url, ParseBuffers.readJson(in));
+        } catch (IOException ex) {
+            throw new JsonLdError(JsonLdError.Error.LOADING_REMOTE_CONTEXT_FAILED,
+                    "Can't read context " + url + " from " + file + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Best effort, a context that can not be stored is fetched again by the next execution.
+     */
+    private void storeOffline(String url, RemoteDocument document) {
+        if (contextDirectory == null) {
+            return;
+        }
+        File file = new File(contextDirectory, fileName(url) + EXTENSION);
+        File temporary = new File(contextDirectory, fileName(url) + EXTENSION + ".tmp");
+        try {
+            contextDirectory.mkdirs();
+            try (OutputStream out = new FileOutputStream(temporary)) {
+                out.write(JsonUtils.toString(document.getDocument()).getBytes("UTF-8"));
+            }
+            if (!temporary.renameTo(file)) {
+                temporary.delete();
+            }
+        } catch (IOException ex) {
+            LOG.warn("Can't store context {} into {}", url, file, ex);
+        }
+    }
+
+    private static String fileName(String url) {
+        try {
+            return URLEncoder.encode(url, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
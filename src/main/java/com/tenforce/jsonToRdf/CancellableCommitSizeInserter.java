@@ -1,20 +1,45 @@
 package com.tenforce.jsonToRdf;
 
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
 import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 import org.openrdf.repository.util.RDFInserter;
+import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import eu.unifiedviews.helpers.dpu.exec.UserExecContext;
 
 
-
-
+/**
+ * Inserts statements into a repository connection and commits every commitSize statements.
+ *
+ * Blank node labels restart in every document (jsonld-java starts at _:b0 each time), so
+ * every document gets new blank nodes: their identifiers are made of a prefix, the number of
+ * the document and the label. With a checkpoint the prefix is taken from the checkpoint and
+ * is the same for every attempt to load the file, so statements after a resumed position
+ * refer to the nodes of the statements committed before.
+ *
+ * Like the connection it writes to, an instance is confined to a single thread. The
+ * committed statements counter may be read from any thread.
+ */
 public class CancellableCommitSizeInserter extends RDFInserter {
     private static final Logger LOG = LoggerFactory.getLogger(CancellableCommitSizeInserter.class);
+
+    /**
+     * Identifies this JVM in blank nodes of inserters without a checkpoint.
+     */
+    private static final String INSTANCE = Long.toHexString(new SecureRandom().nextLong() & Long.MAX_VALUE);
+
+    private static final AtomicLong NEXT_INSERTER = new AtomicLong();
     
     private int commitSize = 50000;
 
@@ -22,18 +47,139 @@ public class CancellableCommitSizeInserter extends RDFInserter {
 
     private int statementCounter = 0;
     
-    private long realStatementCounter = 0L;
+    private final AtomicLong realStatementCounter = new AtomicLong();
 
     private final UserExecContext ctx;
 
+    private ConversionCheckpoint checkpoint = null;
+
+    private String checkpointFile = null;
+
+    private ConversionProgress progress = null;
+
+    private RunStatistics statistics = null;
+
+    /**
+     * Number of statements received, including those skipped on resume.
+     */
+    private long position = 0L;
+
+    /**
+     * True if statements are counted by the handler from {@link #countBefore(RDFHandler)}.
+     */
+    private boolean countedBefore = false;
+
+    /**
+     * Statements up to this position are already committed and are skipped.
+     */
+    private long resumePosition = 0L;
+
+    /**
+     * Number of documents started.
+     */
+    private int document = 0;
+
+    /**
+     * Prefix of the identifiers of inserted blank nodes, unique to this inserter unless set
+     * by a checkpoint.
+     */
+    private String blankNodePrefix = "i" + INSTANCE + "x" + NEXT_INSERTER.getAndIncrement() + "d";
+
+    /**
+     * @param con
+     * @param commitSize
+     * @param ctx
+     *        Execution context checked for cancellation, may be null.
+     */
     public CancellableCommitSizeInserter(RepositoryConnection con, int commitSize, UserExecContext ctx) {
         super(con);
+        // Blank nodes are mapped per document by this inserter, see mapBlankNode.
+        setPreserveBNodeIDs(true);
         this.commitSize = commitSize;
         this.ctx = ctx;
     }
 
+    /**
+     * Record committed statements into given checkpoint and skip statements that the
+     * checkpoint reports as already committed for the file.
+     *
+     * @param checkpoint
+     * @param file
+     *        Identification of the loaded file.
+     */
+    public void setCheckpoint(ConversionCheckpoint checkpoint, String file) {
+        this.checkpoint = checkpoint;
+        this.checkpointFile = file;
+        this.resumePosition = checkpoint.getCommittedStatements(file);
+        this.blankNodePrefix = checkpoint.getBlankNodePrefix(file);
+        if (resumePosition > 0) {
+            LOG.info("Resuming '{}', skipping {} already committed statements", file, resumePosition);
+        }
+    }
+
+    /**
+     * Count the positions for the checkpoint before given filter instead of counting the
+     * statements that reach this inserter. A filter that drops statements, like the
+     * deduplication filter, may drop more of them in a retry once other files have published
+     * their fingerprints; positions counted after it would then skip statements that were
+     * never committed.
+     *
+     * @param filter
+     *        Handler that passes statements on to this inserter.
+     * @return Handler to load the file into.
+     */
+    public RDFHandler countBefore(RDFHandler filter) {
+        countedBefore = true;
+        return new RDFHandlerWrapper(filter) {
+
+            @Override
+            public void handleStatement(Statement st) throws RDFHandlerException {
+                position++;
+                super.handleStatement(st);
+            }
+        };
+    }
+
+    /**
+     * Report handled statements into given progress, this also checks for cancellation
+     * independently of the commit size.
+     *
+     * @param progress
+     */
+    public void setProgress(ConversionProgress progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Report commits and their latency into given statistics.
+     *
+     * @param statistics
+     */
+    public void setStatistics(RunStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException {
+        document++;
+        super.startRDF();
+    }
+
     @Override
     public void handleStatement(Statement st) throws RDFHandlerException {
+        if (!countedBefore) {
+            position++;
+        }
+        if (position <= resumePosition) {
+            return;
+        }
+        if (st.getSubject() instanceof BNode || st.getObject() instanceof BNode || st.getContext() instanceof BNode) {
+            st = con.getValueFactory().createStatement((Resource) mapBlankNode(st.getSubject()), st.getPredicate(),
+                    mapBlankNode(st.getObject()), (Resource) mapBlankNode(st.getContext()));
+        }
+        if (progress != null && !progress.statementHandled()) {
+            throw new RDFHandlerException("Cancelled by user");
+        }
         if (!transactionOpen) {
             try {
                 con.begin();
@@ -45,15 +191,13 @@ public class CancellableCommitSizeInserter extends RDFInserter {
         super.handleStatement(st);
         statementCounter++;
         if (transactionOpen && (statementCounter == commitSize)) {
-            if (ctx.canceled()) {
+            if (ctx != null && ctx.canceled()) {
                 throw new RDFHandlerException("Cancelled by user");
             }
             try {
-                con.commit();
-                if (LOG.isDebugEnabled()) {
-                    realStatementCounter+= statementCounter;
-                    LOG.debug("Commit {}", realStatementCounter);
-                }
+                commit();
+                long committed = realStatementCounter.addAndGet(statementCounter);
+                LOG.debug("Commit {}", committed);
             } catch (RepositoryException e) {
                 try {
                     con.rollback();
@@ -71,7 +215,8 @@ public class CancellableCommitSizeInserter extends RDFInserter {
     public void endRDF() throws RDFHandlerException {
         if (transactionOpen) {
             try {
-                con.commit();
+                commit();
+                realStatementCounter.addAndGet(statementCounter);
             } catch (RepositoryException e) {
                 try {
                     con.rollback();
@@ -80,7 +225,39 @@ public class CancellableCommitSizeInserter extends RDFInserter {
                 }
                 throw new RDFHandlerException(e);
             }
+            // Next document (e.g. another zip entry) starts a new transaction.
+            statementCounter = 0;
+            transactionOpen = false;
         }
         super.endRDF();
     }
+
+    /**
+     * @return Number of statements committed by this inserter.
+     */
+    public long getCommittedStatements() {
+        return realStatementCounter.get();
+    }
+
+    private Value mapBlankNode(Value value) {
+        if (value instanceof BNode) {
+            return con.getValueFactory().createBNode(blankNodePrefix + document + "x" + ((BNode) value).getID());
+        }
+        return value;
+    }
+
+    private void commit() throws RepositoryException {
+        long start = System.nanoTime();
+        con.commit();
+        if (statistics != null) {
+            statistics.committed(statementCounter, System.nanoTime() - start);
+        }
+        updateCheckpoint();
+    }
+
+    private void updateCheckpoint() {
+        if (checkpoint != null) {
+            checkpoint.statementsCommitted(checkpointFile, position);
+        }
+    }
 }
@@ -0,0 +1,289 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.openrdf.model.URI;
+import org.openrdf.model.impl.URIImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers progress of the conversion: the output graphs created so far, which files have
+ * been fully loaded or skipped and how many statements of a partially loaded file have
+ * already been committed.
+ *
+ * When a file is loaded again, either because fault tolerance re-executes the file action
+ * or because the execution is resumed, the file is re-parsed but statements that were
+ * already committed are not inserted again, and finished files are not touched at all.
+ * The JSON-LD conversion is deterministic, so the n-th statement of a re-parse is the n-th
+ * statement of the first attempt. Blank nodes get identifiers derived from the run, the
+ * file, the document and their label, so statements after the committed ones refer to the
+ * same blank nodes.
+ *
+ * A checkpoint opened with {@link #open(File)} appends every change to a journal file and
+ * restores the progress from it when opened again. Fingerprints of the statement
+ * deduplication are not part of it, statements loaded before a resume are not deduplicated
+ * against statements loaded after it.
+ */
+public class ConversionCheckpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConversionCheckpoint.class);
+
+    private static final String RUN = "run";
+
+    private static final String GRAPH = "graph";
+
+    private static final String COMMITTED = "committed";
+
+    private static final String COMPLETED = "completed";
+
+    private static final String SKIPPED = "skipped";
+
+    /**
+     * Identifies the conversion in blank node identifiers.
+     */
+    private final String run;
+
+    /**
+     * Journal the changes are appended to, null if the checkpoint lives in memory only.
+     */
+    private final File journal;
+
+    private final Map<String, URI> graphs = new HashMap<>();
+
+    private final Set<URI> graphUris = new HashSet<>();
+
+    private final Map<String, Long> committedStatements = new HashMap<>();
+
+    private final Set<String> completedFiles = new HashSet<>();
+
+    private final Set<String> skippedFiles = new HashSet<>();
+
+    /**
+     * Checkpoint for a single execution, kept in memory only.
+     */
+    public ConversionCheckpoint() {
+        this(newRun(), null);
+    }
+
+    private ConversionCheckpoint(String run, File journal) {
+        this.run = run;
+        this.journal = journal;
+    }
+
+    /**
+     * @param journal
+     *        File the progress is kept in, created if it does not exist.
+     * @return Checkpoint with the progress recorded in given file.
+     * @throws IOException
+     */
+    public static ConversionCheckpoint open(File journal) throws IOException {
+        if (!journal.exists() || readJournal(journal).indexOf('\n') < 0) {
+            // Nothing has been recorded, at most the first line was cut short.
+            ConversionCheckpoint checkpoint = new ConversionCheckpoint(newRun(), journal);
+            Files.deleteIfExists(journal.toPath());
+            checkpoint.append(RUN, checkpoint.run);
+            return checkpoint;
+        }
+        String content = readJournal(journal);
+        // A line cut short by a crash has no line end and is ignored.
+        String[] lines = content.substring(0, content.lastIndexOf('\n') + 1).split("\n");
+        if (lines.length == 0 || !lines[0].startsWith(RUN + " ")) {
+            throw new IOException("Not a conversion checkpoint: " + journal);
+        }
+        ConversionCheckpoint checkpoint = new ConversionCheckpoint(lines[0].substring(RUN.length() + 1), journal);
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split(" ");
+            switch (fields[0]) {
+                case GRAPH:
+                    checkpoint.putGraph(decode(fields[2]), new URIImpl(fields[1]));
+                    break;
+                case COMMITTED:
+                    checkpoint.committedStatements.put(decode(fields[2]), Long.parseLong(fields[1]));
+                    break;
+                case COMPLETED:
+                    checkpoint.completedFiles.add(decode(fields[1]));
+                    checkpoint.committedStatements.remove(decode(fields[1]));
+                    break;
+                case SKIPPED:
+                    checkpoint.skippedFiles.add(decode(fields[1]));
+                    checkpoint.committedStatements.remove(decode(fields[1]));
+                    break;
+                default:
+                    throw new IOException("Unknown checkpoint record: " + lines[i]);
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @return True if nothing has been recorded yet.
+     */
+    public synchronized boolean isEmpty() {
+        return graphs.isEmpty() && committedStatements.isEmpty() && completedFiles.isEmpty()
+                && skippedFiles.isEmpty();
+    }
+
+    /**
+     * @param symbolicName
+     * @return Output graph created for given symbolic name, null if there is none yet.
+     */
+    public synchronized URI getGraph(String symbolicName) {
+        return graphs.get(symbolicName);
+    }
+
+    /**
+     * @param graph
+     * @return True if given graph has been recorded for any symbolic name.
+     */
+    public synchronized boolean isGraphUsed(URI graph) {
+        return graphUris.contains(graph);
+    }
+
+    /**
+     * Record an output graph once it has been created together with its metadata.
+     *
+     * @param symbolicName
+     * @param graph
+     */
+    public synchronized void graphCreated(String symbolicName, URI graph) {
+        putGraph(symbolicName, graph);
+        append(GRAPH, graph.stringValue(), encode(symbolicName));
+    }
+
+    /**
+     * @param file
+     * @return Prefix of the identifiers of the blank nodes inserted from given file, the same
+     *         for every attempt to load the file.
+     */
+    public String getBlankNodePrefix(String file) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < file.length(); i++) {
+            h = (h ^ file.charAt(i)) * 0x100000001b3L;
+        }
+        return run + "f" + Long.toHexString(h) + "d";
+    }
+
+    /**
+     * @param file
+     * @return Number of leading statements of given file that are already committed.
+     */
+    public synchronized long getCommittedStatements(String file) {
+        Long value = committedStatements.get(file);
+        return value == null ? 0L : value;
+    }
+
+    /**
+     * Record that the first position statements of the file are committed.
+     *
+     * @param file
+     * @param position
+     */
+    public synchronized void statementsCommitted(String file, long position) {
+        Long value = committedStatements.get(file);
+        if (value == null || value < position) {
+            committedStatements.put(file, position);
+            append(COMMITTED, Long.toString(position), encode(file));
+        }
+    }
+
+    public synchronized void fileCompleted(String file) {
+        completedFiles.add(file);
+        committedStatements.remove(file);
+        append(COMPLETED, encode(file));
+    }
+
+    /**
+     * Record that the file has not been loaded because of an error, statements committed
+     * before the error are kept.
+     *
+     * @param file
+     */
+    public synchronized void fileSkipped(String file) {
+        skippedFiles.add(file);
+        committedStatements.remove(file);
+        append(SKIPPED, encode(file));
+    }
+
+    public synchronized boolean isCompleted(String file) {
+        return completedFiles.contains(file);
+    }
+
+    public synchronized boolean isSkipped(String file) {
+        return skippedFiles.contains(file);
+    }
+
+    public synchronized int getCompletedFilesCount() {
+        return completedFiles.size();
+    }
+
+    public synchronized int getSkippedFilesCount() {
+        return skippedFiles.size();
+    }
+
+    private void putGraph(String symbolicName, URI graph) {
+        graphs.put(symbolicName, graph);
+        graphUris.add(graph);
+    }
+
+    /**
+     * Append a record to the journal. A record that can not be written is only logged: the
+     * journal then lags behind, a resumed execution loads the missing part again and the
+     * deterministic blank nodes make that insert the same statements.
+     */
+    private void append(String... fields) {
+        if (journal == null) {
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        for (String field : fields) {
+            if (line.length() > 0) {
+                line.append(' ');
+            }
+            line.append(field);
+        }
+        line.append('\n');
+        try (OutputStream out = new FileOutputStream(journal, true)) {
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ex) {
+            LOG.warn("Can't write conversion checkpoint '{}'", journal, ex);
+        }
+    }
+
+    private static String readJournal(File journal) throws IOException {
+        return new String(Files.readAllBytes(journal.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static String newRun() {
+        return "r" + Long.toHexString(new SecureRandom().nextLong() & Long.MAX_VALUE);
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.openrdf.model.Resource;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+import com.github.jsonldjava.core.JsonLdError;
+
+/**
+ * Converts JSON documents into RDF. {@link ParseErrorListenerEnabledRDFLoader} takes
+ * care of reading and decompressing the input and hands every JSON document to an
+ * engine.
+ *
+ * {@link JsonLdConversionEngine} is the reference, other engines must produce graphs
+ * isomorphic to it. Engines hold no per-document state and can be shared by any number
+ * of threads.
+ */
+public interface ConversionEngine {
+
+    /**
+     * Name of the property that links the root node with the items of a top-level array.
+     */
+    String DATASETS_KEY = "datasets";
+
+    /**
+     * Convert a JSON document read from given stream as a single RDF document.
+     *
+     * @param in
+     *        Uncompressed JSON, not closed by the engine.
+     * @param handler
+     * @throws IOException
+     * @throws RDFHandlerException
+     * @throws JsonLdError
+     */
+    void convert(InputStream in, RDFHandler handler) throws IOException, RDFHandlerException, JsonLdError;
+
+    /**
+     * Convert a parsed JSON document as a single RDF document.
+     *
+     * @param json
+     *        Parsed document, maps and lists as produced by Jackson. The engine may modify it.
+     * @param root
+     *        Subject of the root node, if null then a blank node is used.
+     * @param handler
+     * @throws RDFHandlerException
+     * @throws JsonLdError
+     */
+    void convert(Object json, Resource root, RDFHandler handler) throws RDFHandlerException, JsonLdError;
+}
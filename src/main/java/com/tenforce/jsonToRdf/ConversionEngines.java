@@ -0,0 +1,118 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.rio.ParserConfig;
+import org.openrdf.rio.RDFHandler;
+
+import com.github.jsonldjava.core.DocumentLoader;
+import com.github.jsonldjava.core.JsonLdError;
+
+/**
+ * Creates loaders with the {@link ConversionEngine} selected by
+ * {@link JSONToRDFConfig_V1#getConversionEngine()}.
+ */
+public final class ConversionEngines {
+
+    private static final String JSON_LD_OVER_BUDGET = "JSON-LD document does not fit into the heap budget, "
+            + "JSON-LD is converted as a whole and can not be converted item by item.";
+
+    /**
+     * Rejects JSON-LD documents that do not fit into the heap budget, instead of expanding
+     * them in memory anyway.
+     */
+    private static final ConversionEngine REJECTING_JSON_LD_ENGINE = new ConversionEngine() {
+
+        @Override
+        public void convert(InputStream in, RDFHandler handler) throws IOException {
+            throw new IOException(JSON_LD_OVER_BUDGET);
+        }
+
+        @Override
+        public void convert(Object json, Resource root, RDFHandler handler) throws JsonLdError {
+            throw new JsonLdError(JsonLdError.Error.UNKNOWN_ERROR, JSON_LD_OVER_BUDGET);
+        }
+    };
+
+    private ConversionEngines() {
+    }
+
+    /**
+     * @param config
+     * @return Loader of remote contexts shared by all documents of an execution, null if
+     *         JSON-LD documents are not honoured.
+     */
+    public static DocumentLoader createDocumentLoader(JSONToRDFConfig_V1 config) {
+        if (!config.isHonourJsonLd()) {
+            return null;
+        }
+        String directory = config.getContextDirectory();
+        return new CachingDocumentLoader(directory == null || directory.isEmpty() ? null : new File(directory),
+                config.isRemoteContextsAllowed());
+    }
+
+    /**
+     * @param config
+     * @param vf
+     * @param schema
+     *        Key to predicate table used by the fast engine, may be null.
+     * @param documentLoader
+     *        Loader of remote contexts, null if JSON-LD documents are not honoured.
+     * @param itemByItem
+     *        If true then top-level arrays are converted item by item and other documents,
+     *        JSON-LD documents included, are rejected. Used for documents that do not fit into
+     *        the heap budget.
+     * @return Loader using the configured engine.
+     */
+    public static ParseErrorListenerEnabledRDFLoader createLoader(JSONToRDFConfig_V1 config, ValueFactory vf,
+            InferredSchema schema, DocumentLoader documentLoader, boolean itemByItem) {
+        return createLoader(config.getConversionEngine(), config.getVocab(), vf, schema, documentLoader, itemByItem);
+    }
+
+    /**
+     * @param name
+     *        One of the CONVERSION_ENGINE_ constants of {@link JSONToRDFConfig_V1}.
+     * @param vocab
+     * @param vf
+     * @param schema
+     *        Key to predicate table used by the fast engine, may be null.
+     * @param documentLoader
+     *        Loader of remote contexts, null if JSON-LD documents are not honoured.
+     * @param itemByItem
+     *        If true then top-level arrays are converted item by item and other documents,
+     *        JSON-LD documents included, are rejected.
+     * @return Loader using given engine.
+     */
+    public static ParseErrorListenerEnabledRDFLoader createLoader(String name, String vocab, ValueFactory vf,
+            InferredSchema schema, DocumentLoader documentLoader, boolean itemByItem) {
+        boolean contextsHonoured = documentLoader != null;
+        JsonLdConversionEngine reference = new JsonLdConversionEngine(vocab, documentLoader, false);
+        ConversionEngine recordEngine = reference;
+        if (JSONToRDFConfig_V1.CONVERSION_ENGINE_FAST.equals(name)) {
+            if (schema == null) {
+                // Every key is expanded on the fly.
+                schema = new InferredSchema(Collections.<String, InferredSchema.Property> emptyMap(), 0L);
+            }
+            recordEngine = new SchemaConversionEngine(schema, vf, vocab, reference, contextsHonoured);
+        } else if (!JSONToRDFConfig_V1.CONVERSION_ENGINE_JSONLD.equals(name)
+                && !JSONToRDFConfig_V1.CONVERSION_ENGINE_STREAMING.equals(name)) {
+            throw new IllegalArgumentException("Unknown conversion engine: " + name);
+        }
+        ConversionEngine engine = recordEngine;
+        if (itemByItem || JSONToRDFConfig_V1.CONVERSION_ENGINE_STREAMING.equals(name)) {
+            engine = new StreamingConversionEngine(recordEngine, vf, itemByItem, contextsHonoured);
+        }
+        // Documents in JSON-LD format are converted as they are, never item by item.
+        ConversionEngine jsonLdEngine = null;
+        if (documentLoader != null) {
+            jsonLdEngine = itemByItem ? REJECTING_JSON_LD_ENGINE
+                    : new JsonLdConversionEngine(vocab, documentLoader, true);
+        }
+        return new ParseErrorListenerEnabledRDFLoader(new ParserConfig(), vf, engine, jsonLdEngine);
+    }
+}
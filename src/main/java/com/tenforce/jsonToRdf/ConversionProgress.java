@@ -0,0 +1,178 @@
+package com.tenforce.jsonToRdf;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import eu.unifiedviews.helpers.dpu.context.ContextUtils;
+import eu.unifiedviews.helpers.dpu.exec.UserExecContext;
+
+/**
+ * Tracks progress of a single file conversion: bytes read from the input and
+ * statements produced. Progress is reported at most once per {@link #REPORT_INTERVAL_MILLIS},
+ * cancellation is checked every {@link #CHECK_BYTES} bytes and every
+ * {@link #CHECK_STATEMENTS} statements.
+ *
+ * Updated by the thread converting the file, counters may be read from any thread.
+ * Without an execution context (command line use, shard writer threads) progress is only
+ * logged. Counts are added to the {@link RunStatistics} of the execution at every check.
+ */
+public class ConversionProgress {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConversionProgress.class);
+
+    public static final long REPORT_INTERVAL_MILLIS = 30000L;
+
+    public static final long CHECK_BYTES = 1024L * 1024L;
+
+    public static final long CHECK_STATEMENTS = 10000L;
+
+    private final UserExecContext ctx;
+
+    private final String name;
+
+    private final long totalBytes;
+
+    private final long startTime;
+
+    private long lastReport;
+
+    private volatile long bytesRead = 0L;
+
+    private long nextBytesCheck = CHECK_BYTES;
+
+    private volatile long statements = 0L;
+
+    private final RunStatistics statistics;
+
+    private long reportedBytes = 0L;
+
+    private long reportedStatements = 0L;
+
+    private AtomicBoolean cancelled = null;
+
+    /**
+     * @param ctx
+     *        Execution context, may be null.
+     * @param name
+     *        Name of the converted file used in messages.
+     * @param totalBytes
+     *        Size of the input, used to compute percentage and ETA.
+     */
+    public ConversionProgress(UserExecContext ctx, String name, long totalBytes) {
+        this(ctx, name, totalBytes, null);
+    }
+
+    /**
+     * @param ctx
+     *        Execution context, may be null.
+     * @param name
+     *        Name of the converted file used in messages.
+     * @param totalBytes
+     *        Size of the input, used to compute percentage and ETA.
+     * @param statistics
+     *        Statistics of the execution, may be null.
+     */
+    public ConversionProgress(UserExecContext ctx, String name, long totalBytes, RunStatistics statistics) {
+        this.ctx = ctx;
+        this.name = name;
+        this.totalBytes = totalBytes;
+        this.statistics = statistics;
+        this.startTime = System.currentTimeMillis();
+        this.lastReport = startTime;
+    }
+
+    /**
+     * Stop the conversion once the flag is set, for threads that do not use the execution
+     * context.
+     *
+     * @param cancelled
+     */
+    public void setCancelled(AtomicBoolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    /**
+     * @param count
+     * @return False if the conversion has been cancelled.
+     */
+    public boolean bytesRead(long count) {
+        bytesRead += count;
+        if (bytesRead >= nextBytesCheck) {
+            nextBytesCheck = bytesRead + CHECK_BYTES;
+            return check();
+        }
+        return true;
+    }
+
+    /**
+     * @return False if the conversion has been cancelled.
+     */
+    public boolean statementHandled() {
+        statements++;
+        if (statements % CHECK_STATEMENTS == 0) {
+            return check();
+        }
+        return true;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    /**
+     * Log final statistics of the file.
+     */
+    public void finished() {
+        long duration = Math.max(1L, System.currentTimeMillis() - startTime);
+        LOG.info("Converted '{}': {} bytes, {} statements in {} ms ({} statements/s)",
+                name, bytesRead, statements, duration, statements * 1000L / duration);
+        if (statistics != null) {
+            updateStatistics();
+            statistics.fileFinished(name, bytesRead, statements, duration);
+        }
+    }
+
+    private boolean check() {
+        if ((ctx != null && ctx.canceled()) || (cancelled != null && cancelled.get())) {
+            return false;
+        }
+        if (statistics != null) {
+            updateStatistics();
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastReport >= REPORT_INTERVAL_MILLIS) {
+            lastReport = now;
+            report(now);
+        }
+        return true;
+    }
+
+    private void updateStatistics() {
+        statistics.bytesRead(bytesRead - reportedBytes);
+        reportedBytes = bytesRead;
+        statistics.statementsProduced(statements - reportedStatements);
+        reportedStatements = statements;
+    }
+
+    private void report(long now) {
+        long elapsed = now - startTime;
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("Read %d of %d kB", bytesRead / 1024, totalBytes / 1024));
+        if (totalBytes > 0 && bytesRead < totalBytes) {
+            long eta = (long) (elapsed * ((double) (totalBytes - bytesRead) / Math.max(1L, bytesRead)));
+            message.append(String.format(" (%d percent, reading done in about %d s)",
+                    bytesRead * 100 / totalBytes, eta / 1000));
+        }
+        message.append(String.format(", %d statements, %d s elapsed.", statements, elapsed / 1000));
+        LOG.info("Progress of '{}': {}", name, message);
+        if (ctx != null) {
+            ContextUtils.sendInfo(ctx, "Converting " + name, message.toString());
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Orders files so that a run of parallel workers finishes as early as possible: the
+ * largest files start first (longest processing time first), so a huge file does not
+ * start last and leave the other workers idle.
+ *
+ * The size of a file is its estimated uncompressed size, for a zip the size of all its
+ * entries, see {@link MemoryGovernor#estimateTotalSize(File)}.
+ *
+ * @param <T>
+ *        Scheduled item, e.g. a file or an input entry.
+ */
+public class FileScheduler<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileScheduler.class);
+
+    /**
+     * A scheduled item.
+     */
+    public static class Task<T> {
+
+        private final T item;
+
+        private final long size;
+
+        private final int sequence;
+
+        private int worker = 0;
+
+        Task(T item, long size, int sequence) {
+            this.item = item;
+            this.size = size;
+            this.sequence = sequence;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return Worker the item is assigned to by {@link FileScheduler#assign(int)}.
+         */
+        public int getWorker() {
+            return worker;
+        }
+    }
+
+    private final List<Task<T>> tasks = new ArrayList<>();
+
+    /**
+     * @param item
+     * @param file
+     *        File of the item, its size is used for scheduling.
+     */
+    public void add(T item, File file) {
+        add(item, estimateSize(file));
+    }
+
+    /**
+     * @param item
+     * @param size
+     *        Expected amount of work for the item, e.g. its size in bytes.
+     */
+    public void add(T item, long size) {
+        tasks.add(new Task<>(item, size, tasks.size()));
+    }
+
+    /**
+     * @return Items, largest first. Items of the same size keep the order they were added in.
+     */
+    public List<Task<T>> largestFirst() {
+        List<Task<T>> ordered = new ArrayList<>(tasks);
+        Collections.sort(ordered, new Comparator<Task<T>>() {
+
+            @Override
+            public int compare(Task<T> left, Task<T> right) {
+                if (left.size != right.size) {
+                    return left.size > right.size ? -1 : 1;
+                }
+                return Integer.compare(left.sequence, right.sequence);
+            }
+        });
+        return ordered;
+    }
+
+    /**
+     * Assign the items to a fixed set of workers: largest first, each to the worker with
+     * the least work assigned so far.
+     *
+     * @param workers
+     * @return Items largest first, with their worker set.
+     */
+    public List<Task<T>> assign(int workers) {
+        List<Task<T>> ordered = largestFirst();
+        // Load of a worker and its index, the least loaded (then the lowest index) first.
+        PriorityQueue<long[]> loads = new PriorityQueue<>(Math.max(1, workers), new Comparator<long[]>() {
+
+            @Override
+            public int compare(long[] left, long[] right) {
+                if (left[0] != right[0]) {
+                    return left[0] < right[0] ? -1 : 1;
+                }
+                return Long.compare(left[1], right[1]);
+            }
+        });
+        for (int i = 0; i < workers; i++) {
+            loads.add(new long[] { 0L, i });
+        }
+        for (Task<T> task : ordered) {
+            long[] load = loads.poll();
+            task.worker = (int) load[1];
+            load[0] += Math.max(1L, task.size);
+            loads.add(load);
+        }
+        if (LOG.isDebugEnabled()) {
+            for (long[] load : loads) {
+                LOG.debug("Worker {} assigned {} bytes", load[1], load[0]);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * Group the items for workers that take them from a shared queue: largest first, with
+     * small items batched together until a batch reaches given size, so small files do
+     * not pay the cost of a task each.
+     *
+     * @param batchSize
+     * @return Batches, largest first.
+     */
+    public List<List<T>> batches(long batchSize) {
+        List<List<T>> batches = new ArrayList<>();
+        List<T> batch = new ArrayList<>();
+        long size = 0L;
+        for (Task<T> task : largestFirst()) {
+            batch.add(task.getItem());
+            size += task.getSize();
+            if (size >= batchSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                size = 0L;
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * @return Sum of the sizes of all items.
+     */
+    public long getTotalSize() {
+        long total = 0L;
+        for (Task<T> task : tasks) {
+            total += task.getSize();
+        }
+        return total;
+    }
+
+    /**
+     * @param file
+     * @return Estimated uncompressed size, the file length if the file can not be read.
+     */
+    static long estimateSize(File file) {
+        try {
+            return MemoryGovernor.estimateTotalSize(file);
+        } catch (IOException ex) {
+            LOG.debug("Can't estimate size of '{}'", file, ex);
+            return file.length();
+        }
+    }
+}
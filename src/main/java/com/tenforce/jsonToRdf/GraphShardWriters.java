@@ -0,0 +1,141 @@
+package com.tenforce.jsonToRdf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * One writer thread per output graph shard. Files are assigned to shards as a whole, so
+ * every shard is written through its own connection and inserter and the store can
+ * ingest the shards concurrently, while the files of a shard are loaded one after the
+ * other.
+ *
+ * Writer threads do connection work only: the thread that submits the loads waits for
+ * them, retries failed ones and keeps fault tolerance and the execution context to
+ * itself. Once the writers are shut down, loads not started yet are not run at all.
+ */
+public class GraphShardWriters {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GraphShardWriters.class);
+
+    /**
+     * Loads a single file into a shard.
+     */
+    public interface FileLoad {
+
+        void load(int shard) throws Exception;
+    }
+
+    private final List<ExecutorService> writers;
+
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    /**
+     * @param shards
+     *        Number of shards, each gets its own writer thread.
+     * @param name
+     *        Used to name the writer threads.
+     */
+    public GraphShardWriters(int shards, final String name) {
+        this.writers = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            final String threadName = name + "-shard-" + i;
+            writers.add(Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }));
+        }
+    }
+
+    public int getShardCount() {
+        return writers.size();
+    }
+
+    /**
+     * Queue a file load on the writer of given shard.
+     *
+     * @param shard
+     * @param load
+     * @return Result of the load, see {@link #await(Future, long)}.
+     */
+    public Future<Void> submit(final int shard, final FileLoad load) {
+        return writers.get(shard).submit(new Callable<Void>() {
+
+            @Override
+            public Void call() throws Exception {
+                if (stopped.get()) {
+                    throw new CancellationException("Shard writers have been shut down.");
+                }
+                load.load(shard);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Wait for a submitted load.
+     *
+     * @param load
+     * @param timeoutMillis
+     * @return False if the load has not finished in time.
+     * @throws Exception
+     *         Failure of the load.
+     */
+    public boolean await(Future<Void> load, long timeoutMillis) throws Exception {
+        try {
+            load.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException ex) {
+            return false;
+        } catch (ExecutionException ex) {
+            throw unwrap(ex);
+        }
+    }
+
+    /**
+     * Stop the writer threads, loads in progress are waited for so nothing writes into
+     * the output once the execution is over.
+     */
+    public void shutdown() {
+        stopped.set(true);
+        for (ExecutorService writer : writers) {
+            writer.shutdown();
+        }
+        try {
+            for (ExecutorService writer : writers) {
+                while (!writer.awaitTermination(1, TimeUnit.MINUTES)) {
+                    LOG.info("Waiting for shard writers to finish");
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Exception unwrap(ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return ex;
+    }
+}
@@ -0,0 +1,212 @@
+package com.tenforce.jsonToRdf;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.RDFS;
+
+/**
+ * Key to predicate table built from a sample of the input records. Every JSON key
+ * seen while sampling is expanded against the vocabulary once, conversion then only
+ * looks the key up.
+ *
+ * The lookup is an open addressing table of parallel key and predicate arrays, at most
+ * half full. Keys read by the same parser factory are canonicalized, so the key usually
+ * is the very instance in the table and is matched by reference.
+ *
+ * Immutable, shared by all threads of an execution.
+ */
+public class InferredSchema {
+
+    /**
+     * Namespace of the properties used to describe the schema in the metadata.
+     */
+    public static final String NAMESPACE = "http://unifiedviews.eu/ontology/t-jsonToRdf/schema/";
+
+    /**
+     * Kind of JSON value observed for a key.
+     */
+    public enum Kind {
+        STRING, INTEGER, DOUBLE, BOOLEAN, NULL, OBJECT, ARRAY
+    }
+
+    /**
+     * A key of the sampled records.
+     */
+    public static class Property {
+
+        private final String key;
+
+        private final URI predicate;
+
+        private final long occurrences;
+
+        private final long[] kinds;
+
+        Property(String key, URI predicate, long occurrences, long[] kinds) {
+            this.key = key;
+            this.predicate = predicate;
+            this.occurrences = occurrences;
+            this.kinds = kinds;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public URI getPredicate() {
+            return predicate;
+        }
+
+        public long getOccurrences() {
+            return occurrences;
+        }
+
+        /**
+         * @param kind
+         * @return Number of sampled values of given kind.
+         */
+        public long getOccurrences(Kind kind) {
+            return kinds[kind.ordinal()];
+        }
+    }
+
+    private final Map<String, Property> properties;
+
+    private final long sampledRecords;
+
+    /**
+     * Keys of the lookup table, null for an empty slot.
+     */
+    private final String[] slotKeys;
+
+    /**
+     * Predicates of the keys in the same slots.
+     */
+    private final URI[] slotPredicates;
+
+    private final int mask;
+
+    InferredSchema(Map<String, Property> properties, long sampledRecords) {
+        this.properties = new HashMap<>(properties);
+        this.sampledRecords = sampledRecords;
+        int size = 2;
+        while (size < properties.size() * 2) {
+            size *= 2;
+        }
+        this.slotKeys = new String[size];
+        this.slotPredicates = new URI[size];
+        this.mask = size - 1;
+        for (Property property : properties.values()) {
+            int slot = slot(property.getKey());
+            while (slotKeys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            slotKeys[slot] = property.getKey();
+            slotPredicates[slot] = property.getPredicate();
+        }
+    }
+
+    /**
+     * @param key
+     * @return Predicate for given key, null if the key has not been sampled.
+     */
+    public URI getPredicate(String key) {
+        int slot = slot(key);
+        String slotKey;
+        while ((slotKey = slotKeys[slot]) != null) {
+            if (slotKey == key || slotKey.equals(key)) {
+                return slotPredicates[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public Collection<Property> getProperties() {
+        return Collections.unmodifiableCollection(properties.values());
+    }
+
+    public long getSampledRecords() {
+        return sampledRecords;
+    }
+
+    /**
+     * @return Human readable listing of the table, one key per line.
+     */
+    public String describe() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("%d keys from %d records", properties.size(), sampledRecords));
+        for (Property property : sortedProperties()) {
+            result.append("\n").append(property.getKey()).append(" -> <").append(property.getPredicate())
+                    .append(">");
+            String separator = " (";
+            for (Kind kind : Kind.values()) {
+                if (property.getOccurrences(kind) > 0) {
+                    result.append(separator).append(kind.name().toLowerCase()).append(": ")
+                            .append(property.getOccurrences(kind));
+                    separator = ", ";
+                }
+            }
+            result.append(")");
+        }
+        return result.toString();
+    }
+
+    /**
+     * @param vf
+     * @param graph
+     *        Graph the statements are put into.
+     * @return Description of the table as RDF.
+     */
+    public List<Statement> toStatements(ValueFactory vf, Resource graph) {
+        List<Statement> statements = new ArrayList<>();
+        BNode schema = vf.createBNode();
+        statements.add(vf.createStatement(schema, RDF.TYPE, vf.createURI(NAMESPACE, "Schema"), graph));
+        statements.add(vf.createStatement(schema, vf.createURI(NAMESPACE, "sampledRecords"),
+                vf.createLiteral(sampledRecords), graph));
+        for (Property property : sortedProperties()) {
+            URI predicate = property.getPredicate();
+            statements.add(vf.createStatement(schema, vf.createURI(NAMESPACE, "property"), predicate, graph));
+            statements.add(vf.createStatement(predicate, RDFS.LABEL, vf.createLiteral(property.getKey()), graph));
+            statements.add(vf.createStatement(predicate, vf.createURI(NAMESPACE, "occurrences"),
+                    vf.createLiteral(property.getOccurrences()), graph));
+            for (Kind kind : Kind.values()) {
+                if (property.getOccurrences(kind) > 0) {
+                    statements.add(vf.createStatement(predicate, vf.createURI(NAMESPACE, "valueKind"),
+                            vf.createLiteral(kind.name()), graph));
+                }
+            }
+        }
+        return statements;
+    }
+
+    private int slot(String key) {
+        int h = key.hashCode();
+        // Spread the high bits, keys often differ only in their last characters.
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private List<Property> sortedProperties() {
+        List<Property> sorted = new ArrayList<>(properties.values());
+        Collections.sort(sorted, new Comparator<Property>() {
+
+            @Override
+            public int compare(Property left, Property right) {
+                return left.getKey().compareTo(right.getKey());
+            }
+        });
+        return sorted;
+    }
+}
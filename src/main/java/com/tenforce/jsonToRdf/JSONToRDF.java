@@ -5,9 +5,14 @@ import com.github.jsonldjava.core.*;
 
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.openrdf.model.Literal;
@@ -15,6 +20,7 @@ import org.openrdf.model.Statement;
 import org.openrdf.model.URI;
 import org.openrdf.model.ValueFactory;
 import org.openrdf.model.impl.URIImpl;
+import org.openrdf.model.impl.ValueFactoryImpl;
 import org.openrdf.query.MalformedQueryException;
 import org.openrdf.query.QueryLanguage;
 import org.openrdf.query.Update;
@@ -22,8 +28,8 @@ import org.openrdf.query.UpdateExecutionException;
 import org.openrdf.repository.RepositoryConnection;
 import org.openrdf.repository.RepositoryException;
 import org.openrdf.repository.RepositoryResult;
-import org.openrdf.repository.util.RDFInserter;
 import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
 import org.openrdf.rio.RDFHandlerException;
 import org.openrdf.rio.RDFParseException;
 import org.openrdf.rio.Rio;
@@ -35,6 +41,7 @@ import eu.unifiedviews.dataunit.DataUnit;
 import eu.unifiedviews.dataunit.DataUnitException;
 import eu.unifiedviews.dataunit.MetadataDataUnit;
 import eu.unifiedviews.dataunit.files.FilesDataUnit;
+import eu.unifiedviews.dataunit.files.WritableFilesDataUnit;
 import eu.unifiedviews.dataunit.rdf.RDFDataUnit;
 import eu.unifiedviews.dataunit.rdf.WritableRDFDataUnit;
 import eu.unifiedviews.dpu.DPU;
@@ -45,10 +52,12 @@ import eu.unifiedviews.helpers.dataunit.files.FilesVocabulary;
 import eu.unifiedviews.helpers.dataunit.metadata.MetadataUtils;
 import eu.unifiedviews.helpers.dataunit.resource.Resource;
 import eu.unifiedviews.helpers.dataunit.resource.ResourceHelpers;
+import eu.unifiedviews.helpers.dataunit.virtualpath.VirtualPathHelpers;
 import eu.unifiedviews.helpers.dpu.config.ConfigHistory;
 import eu.unifiedviews.helpers.dpu.config.migration.ConfigurationUpdate;
 import eu.unifiedviews.helpers.dpu.context.ContextUtils;
 import eu.unifiedviews.helpers.dpu.exec.AbstractDpu;
+import eu.unifiedviews.helpers.dpu.exec.UserExecContext;
 import eu.unifiedviews.helpers.dpu.extension.ExtensionInitializer;
 import eu.unifiedviews.helpers.dpu.extension.faulttolerance.FaultTolerance;
 import eu.unifiedviews.helpers.dpu.extension.faulttolerance.FaultToleranceUtils;
@@ -58,12 +67,25 @@ public class JSONToRDF extends AbstractDpu<JSONToRDFConfig_V1> {
 
     private static final Logger LOG = LoggerFactory.getLogger(JSONToRDF.class);
 
+    /**
+     * How often the DPU thread checks for cancellation while waiting for a shard load.
+     */
+    private static final long SHARD_POLL_MILLIS = 1000L;
+
+    /**
+     * Name of the checkpoint journal in the working directory of the execution.
+     */
+    private static final String CHECKPOINT_FILE = "conversion-checkpoint";
+
     @DataUnit.AsInput(name = "filesInput")
     public FilesDataUnit filesInput;
 
     @DataUnit.AsOutput(name = "rdfOutput")
     public WritableRDFDataUnit rdfOutput;
 
+    @DataUnit.AsOutput(name = "filesOutput", optional = true)
+    public WritableFilesDataUnit filesOutput;
+
     @ExtensionInitializer.Init
     public FaultTolerance faultTolerance;
 
@@ -92,10 +114,23 @@ public class JSONToRDF extends AbstractDpu<JSONToRDFConfig_V1> {
     /**
      * True if at least one file has been skipped during conversion.
      */
-    private boolean fileSkipped = false;
+    private final AtomicBoolean fileSkipped = new AtomicBoolean(false);
 
     protected AtomicInteger atomicInteger = new AtomicInteger();
 
+    private ParseErrorListenerEnabledRDFLoader loader;
+
+    private ParseErrorListenerEnabledRDFLoader streamingLoader;
+
+    private MemoryGovernor memoryGovernor;
+
+    /**
+     * Null if statements are not deduplicated.
+     */
+    private StatementDeduplicator deduplicator = null;
+
+    private RunStatistics statistics = null;
+
     public JSONToRDF() {
         super(JSONToRDFVaadinDialog.class, ConfigHistory.noHistory(JSONToRDFConfig_V1.class));
     }
@@ -103,141 +138,728 @@ public class JSONToRDF extends AbstractDpu<JSONToRDFConfig_V1> {
     @Override
     protected void innerExecute() throws DPUException {
         String shortMessage = this.getClass().getSimpleName() + " starting.";
-        String longMessage = String.format("Configuration: commitSize: %d", config.getCommitSize());
+        String longMessage = String.format("Configuration: commitSize: %d, deduplicateStatements: %s, outputMode: %s, "
+                + "conversionEngine: %s, honourJsonLd: %s, outputShards: %d", config.getCommitSize(),
+                config.isDeduplicateStatements(), config.getOutputMode(), config.getConversionEngine(),
+                config.isHonourJsonLd(), config.getOutputShards());
         ContextUtils.sendInfo(ctx, shortMessage, longMessage);
 
         LOG.info(shortMessage + " " + longMessage);
+
+        statistics = new RunStatistics();
+        statistics.startReporting(config.getStatisticsIntervalSeconds());
+
+        final boolean fileOutputMode = JSONToRDFConfig_V1.OUTPUT_FILES.equals(config.getOutputMode());
+        if (fileOutputMode && filesOutput == null) {
+            throw ContextUtils.dpuException(ctx, "Output 'filesOutput' must be connected to write into files.");
+        }
+
+        // Restores the progress of a previous attempt of this execution.
+        final ConversionCheckpoint checkpoint = openCheckpoint();
+
         final URI globalOutputGraphUri;
+        final RDFFileOutput globalFileOutput;
+        // Graphs of the output shards, null if not sharded.
+        final List<URI> shardGraphUris;
 
         // Create output graph if we are in M->1 mode.
         if (JSONToRDFConfig_V1.USE_FIXED_SYMBOLIC_NAME.equals(config.getOutputNaming())) {
             // Use given value from config as output graph name.
-            try {
-                String value = config.getOutputSymbolicName();
-                if (value == null || value.isEmpty()) {
-                    Date currentTime = new Date();
-                    value = "JSONToRDF/generated_" + Long.toString(currentTime.getTime());
-                }
-                LOG.info("Output symbolic name: {}", value);
-                globalOutputGraphUri = rdfOutput.addNewDataGraph(value);
-                final String outputSymbolicName = value;
-                faultTolerance.execute(new FaultTolerance.Action() {
+            String value = config.getOutputSymbolicName();
+            if (value == null || value.isEmpty()) {
+                Date currentTime = new Date();
+                value = "JSONToRDF/generated_" + Long.toString(currentTime.getTime());
+            }
+            LOG.info("Output symbolic name: {}", value);
+            final String outputSymbolicName = value;
+            if (fileOutputMode) {
+                globalOutputGraphUri = null;
+                final long rollSize = config.getFileOutputRollSizeMB() * 1024L * 1024L;
+                globalFileOutput = new RDFFileOutput(new RDFFileOutput.FileFactory() {
 
                     @Override
-                    public void action() throws Exception {
-                        Resource resource = ResourceHelpers.getResource(rdfOutput, outputSymbolicName);
-                        Date now = new Date();
-                        resource.setLast_modified(now);
-                        resource.setCreated(now);
-                        ResourceHelpers.setResource(rdfOutput, outputSymbolicName, resource);
+                    public File createFile(int part, String extension) throws Exception {
+                        if (rollSize > 0) {
+                            return addOutputFile(outputSymbolicName + "-" + part + extension);
+                        } else {
+                            return addOutputFile(outputSymbolicName + extension);
+                        }
                     }
-                });
-
-            } catch (DataUnitException ex) {
-                throw ContextUtils.dpuException(ctx, ex, "Can't create output graph.");
+                }, getFileOutputFormat(), config.isFileOutputCompressed(), rollSize);
+                shardGraphUris = null;
+            } else if (config.getOutputShards() > 1) {
+                globalOutputGraphUri = null;
+                globalFileOutput = null;
+                shardGraphUris = new ArrayList<>(config.getOutputShards());
+                for (int shard = 0; shard < config.getOutputShards(); shard++) {
+                    shardGraphUris.add(addOutputGraph(outputSymbolicName + "-" + shard, checkpoint));
+                }
+            } else {
+                globalFileOutput = null;
+                globalOutputGraphUri = addOutputGraph(outputSymbolicName, checkpoint);
+                shardGraphUris = null;
             }
         } else {
             globalOutputGraphUri = null;
+            globalFileOutput = null;
+            shardGraphUris = null;
         }
 
         // Load files.
         final List<FilesDataUnit.Entry> files = FaultToleranceUtils.getEntries(faultTolerance, filesInput, FilesDataUnit.Entry.class);
 
-        // If true then next file is processed.
-        int index = 1;
-        for (final FilesDataUnit.Entry entry : files) {
-            LOG.info("Processing file {}/{}", index++, files.size());
-            if (ctx.canceled()) {
-                throw ContextUtils.dpuExceptionCancelled(ctx);
+        // Shared by all files, so duplicates are detected across files of the same output graph or file.
+        // Each shard is a graph of its own written by its own thread, so it gets its own share.
+        final List<StatementDeduplicator> deduplicators = new ArrayList<>();
+        if (config.isDeduplicateStatements()) {
+            if (shardGraphUris == null) {
+                deduplicator = new StatementDeduplicator(config.getDeduplicationCapacity());
+                deduplicators.add(deduplicator);
+            } else {
+                for (int shard = 0; shard < shardGraphUris.size(); shard++) {
+                    deduplicators.add(new StatementDeduplicator(
+                            Math.max(1, config.getDeduplicationCapacity() / shardGraphUris.size())));
+                }
             }
+        }
 
-            // Set output graph name.
-            final URI outputGraphUri;
-            if (globalOutputGraphUri == null) {
-                faultTolerance.execute(new FaultTolerance.Action() {
+        // Documents of all shards are converted at the same time and share the heap.
+        int heapBudgetPercent = config.getHeapBudgetPercent();
+        if (shardGraphUris != null && heapBudgetPercent > 0) {
+            heapBudgetPercent = Math.max(1, heapBudgetPercent / shardGraphUris.size());
+        }
+        memoryGovernor = new MemoryGovernor(heapBudgetPercent);
 
-                    @Override
-                    public void action() throws Exception {
-                        CopyHelpers.copyMetadata(entry.getSymbolicName(), filesInput, rdfOutput);
-                    }
-                });
+        final InferredSchema schema = config.isInferSchema() ? inferSchema(files) : null;
+
+        // Loaders are stateless, one instance of each kind serves all files. Both share the
+        // remote contexts, so each context is fetched at most once per execution.
+        // As they outlive every connection they use their own value factory, the inserter
+        // creates blank nodes through its connection and stores accept any other value.
+        final DocumentLoader documentLoader = ConversionEngines.createDocumentLoader(config);
+        try {
+            loader = ConversionEngines.createLoader(config, ValueFactoryImpl.getInstance(), schema,
+                    documentLoader, false);
+        } catch (IllegalArgumentException ex) {
+            throw ContextUtils.dpuException(ctx, ex, "Invalid configuration.");
+        }
+        streamingLoader = ConversionEngines.createLoader(config, ValueFactoryImpl.getInstance(), schema,
+                documentLoader, true);
+
+        // Files are assigned to shards as a whole, largest first to the least loaded shard, so
+        // all shards finish at about the same time. Sequential loading keeps the input order.
+        final GraphShardWriters shardWriters;
+        final List<FilesDataUnit.Entry> orderedFiles;
+        final List<Integer> fileShards = new ArrayList<>();
+        final List<GraphShardWriters.FileLoad> shardLoads = new ArrayList<>();
+        final List<Future<Void>> shardResults = new ArrayList<>();
+        // Stops loads running on the shard writers, they do not use the execution context.
+        final AtomicBoolean shardsCancelled = new AtomicBoolean(false);
+        if (shardGraphUris != null) {
+            shardWriters = new GraphShardWriters(shardGraphUris.size(), getClass().getSimpleName());
+            FileScheduler<FilesDataUnit.Entry> scheduler = new FileScheduler<>();
+            for (FilesDataUnit.Entry entry : files) {
+                scheduler.add(entry, new File(java.net.URI.create(getFileUri(entry))));
+            }
+            orderedFiles = new ArrayList<>(files.size());
+            for (FileScheduler.Task<FilesDataUnit.Entry> task : scheduler.assign(shardWriters.getShardCount())) {
+                orderedFiles.add(task.getItem());
+                fileShards.add(task.getWorker());
+            }
+        } else {
+            shardWriters = null;
+            orderedFiles = files;
+        }
 
-                outputGraphUri = faultTolerance.execute(new FaultTolerance.ActionReturn<URI>() {
+        // If true then next file is processed.
+        int index = 1;
+        try {
+            for (final FilesDataUnit.Entry entry : orderedFiles) {
+                final long documentScope = index;
+                LOG.info("Processing file {}/{}", index++, files.size());
+                if (ctx.canceled()) {
+                    throw ContextUtils.dpuExceptionCancelled(ctx);
+                }
 
-                    @Override
-                    public URI action() throws Exception {
-                        return new URIImpl(rdfOutput.getBaseDataGraphURI().stringValue() + "/" + String.valueOf(atomicInteger.getAndIncrement()));
+                if (fileOutputMode) {
+                    if (globalFileOutput != null) {
+                        loadIntoFile(entry, globalFileOutput, null, documentScope);
+                    } else {
+                        RDFFileOutput fileOutput = new RDFFileOutput(new RDFFileOutput.FileFactory() {
+
+                            @Override
+                            public File createFile(int part, String extension) throws Exception {
+                                return addOutputFile(entry.getSymbolicName() + extension);
+                            }
+                        }, getFileOutputFormat(), config.isFileOutputCompressed(), 0L);
+                        try {
+                            // Each output file is deduplicated on its own.
+                            loadIntoFile(entry, fileOutput, new URIImpl(getFileUri(entry)), documentScope);
+                        } finally {
+                            closeFileOutput(fileOutput);
+                        }
                     }
-                });
+                    continue;
+                }
 
-                faultTolerance.execute(new FaultTolerance.Action() {
+                if (shardWriters != null) {
+                    // Data unit calls stay on this thread, the writer only gets what it needs.
+                    final RDFFormat format = getInputFormat(entry);
+                    final String symbolicName = faultTolerance.execute(new FaultTolerance.ActionReturn<String>() {
 
-                    @Override
-                    public void action() throws Exception {                        
-                        updateExistingDataGraphFromFile(entry.getSymbolicName(), outputGraphUri);
-                    }
-                });
+                        @Override
+                        public String action() throws Exception {
+                            return entry.getSymbolicName();
+                        }
+                    });
+                    final String fileUri = getFileUri(entry);
+                    GraphShardWriters.FileLoad load = new GraphShardWriters.FileLoad() {
+
+                        @Override
+                        public void load(int shard) throws Exception {
+                            loadIntoShard(symbolicName, fileUri, shardGraphUris.get(shard), format, checkpoint,
+                                    documentScope, deduplicators.isEmpty() ? null : deduplicators.get(shard),
+                                    shardsCancelled);
+                        }
+                    };
+                    shardLoads.add(load);
+                    shardResults.add(shardWriters.submit(fileShards.get((int) documentScope - 1), load));
+                    continue;
+                }
 
-                faultTolerance.execute(new FaultTolerance.Action() {
+                // Set output graph name.
+                final URI outputGraphUri;
+                if (globalOutputGraphUri == null) {
+                    outputGraphUri = addFileOutputGraph(entry, checkpoint);
+                } else {
+                    outputGraphUri = globalOutputGraphUri;
+                }
+                // Determine format.
+                final RDFFormat format = getInputFormat(entry);
 
-                    @Override
-                    public void action() throws Exception {
-                        Resource resource = ResourceHelpers.getResource(filesInput, entry.getSymbolicName());
-                        Date now = new Date();
-                        resource.setLast_modified(now);
-                        ResourceHelpers.setResource(rdfOutput, entry.getSymbolicName(), resource);
-                    }
-                });
+                loadIntoGraph(entry, outputGraphUri, format, checkpoint, documentScope, deduplicator);
+            }
+            if (shardWriters != null) {
+                awaitShardLoads(shardWriters, fileShards, shardLoads, shardResults, shardsCancelled);
+            }
+        } catch (DPUException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw ContextUtils.dpuException(ctx, ex, "Can't convert files.");
+        } finally {
+            if (shardWriters != null) {
+                // Loads still running stop at their next check.
+                shardsCancelled.set(true);
+                shardWriters.shutdown();
+            }
+            if (globalFileOutput != null) {
+                closeFileOutput(globalFileOutput);
+            }
+        }
+        // Publish messsage.
+        if (!deduplicators.isEmpty()) {
+            long duplicates = 0L;
+            long statements = 0L;
+            boolean saturated = false;
+            for (StatementDeduplicator graphDeduplicator : deduplicators) {
+                duplicates += graphDeduplicator.getDuplicateCounter();
+                statements += graphDeduplicator.getStatementCounter();
+                saturated |= graphDeduplicator.isSaturated();
+            }
+            String dedupMessage = String.format("Dropped %d duplicate statements out of %d (%.1f percent).",
+                    duplicates, statements, statements == 0L ? 0.0 : duplicates * 100.0 / statements);
+            LOG.info(dedupMessage);
+            if (saturated) {
+                ContextUtils.sendInfo(ctx, "Statement deduplication finished.", dedupMessage
+                        + " Fingerprint capacity was exhausted, later statements were only partially deduplicated.");
             } else {
-                outputGraphUri = globalOutputGraphUri;
+                ContextUtils.sendInfo(ctx, "Statement deduplication finished.", dedupMessage);
             }
-            // Determine format.
-            final RDFFormat format = faultTolerance.execute(new FaultTolerance.ActionReturn<RDFFormat>() {
+        }
+        publishStatistics();
+        if (fileSkipped.get()) {
+            ContextUtils.sendWarn(ctx, "Some files has been skipped during conversion.", "See logs for more details.");
+        }
+    }
 
-                @Override
-                public RDFFormat action() throws Exception {
-                    String inputVirtualPath = MetadataUtils.get(filesInput, entry, FilesVocabulary.UV_VIRTUAL_PATH);
-                    if (inputVirtualPath != null) {
-                        return Rio.getParserFormatForFileName(inputVirtualPath);
-                    } else {
-                        return Rio.getParserFormatForFileName(entry.getSymbolicName());
-                    }
-                }
-            });
+    @Override
+    protected void innerCleanUp() {
+        if (statistics != null) {
+            statistics.stopReporting();
+        }
+    }
 
-            LOG.debug("Starting extraction of file: {}", entry);
-            faultTolerance.execute(rdfOutput, new FaultTolerance.ConnectionAction() {
+    /**
+     * Publish statistics of the execution into the log and the output metadata.
+     */
+    private void publishStatistics() throws DPUException {
+        statistics.stopReporting();
+        String description = statistics.describe();
+        LOG.info("Run statistics: {}", description);
+        ContextUtils.sendInfo(ctx, "Converted " + statistics.getFiles() + " files.", description);
+        faultTolerance.execute(rdfOutput, new FaultTolerance.ConnectionAction() {
+
+            @Override
+            public void action(RepositoryConnection connection) throws Exception {
+                connection.add(statistics.toStatements(connection.getValueFactory(),
+                        rdfOutput.getMetadataWriteGraphname()));
+            }
+        });
+    }
+
+    /**
+     * Wait for the shard loads in the order of the files. Fault tolerance and the execution
+     * context are used by the DPU thread only: a failed load is retried by submitting it to
+     * its shard again, the writer threads do the connection work.
+     */
+    private void awaitShardLoads(final GraphShardWriters shardWriters, List<Integer> fileShards,
+            List<GraphShardWriters.FileLoad> loads, List<Future<Void>> results, final AtomicBoolean cancelled)
+            throws DPUException {
+        for (int i = 0; i < loads.size(); i++) {
+            final int shard = fileShards.get(i);
+            final GraphShardWriters.FileLoad load = loads.get(i);
+            final Future<Void> firstAttempt = results.get(i);
+            faultTolerance.execute(new FaultTolerance.Action() {
+
+                private Future<Void> attempt = firstAttempt;
 
                 @Override
-                public void action(RepositoryConnection connection) throws Exception {
-                    RDFInserter rdfInserter = new CancellableCommitSizeInserter(connection,
-                            config.getCommitSize(), ctx);
-                    rdfInserter.enforceContext(outputGraphUri);
-                    ParseErrorListenerEnabledRDFLoader loader = new ParseErrorListenerEnabledRDFLoader(
-												       connection.getParserConfig(), connection.getValueFactory(), config.getVocab());
-                    try {
-                        loader.load(new File(java.net.URI.create(entry.getFileURIString())), null, format,
-                            rdfInserter, new ParseErrorLogger());
-                    } catch (IOException | RDFHandlerException | RDFParseException | JsonLdError ex) {
-                        switch (config.getFatalErrorHandling()) {
-                            case JSONToRDFConfig_V1.SKIP_CONTINUE_NEXT_FILE_ERROR_HANDLING:
-                                LOG.error("Skipping file name '{}' with path '{}'",
-                                        entry.getSymbolicName(),
-                                        entry.getFileURIString());
-                                fileSkipped = true;
-                                break;
-                            case JSONToRDFConfig_V1.STOP_EXTRACTION_ERROR_HANDLING:
-                            default:
-                                throw ex;
+                public void action() throws Exception {
+                    if (attempt == null) {
+                        // The checkpoint skips what the failed attempt has committed.
+                        attempt = shardWriters.submit(shard, load);
+                    }
+                    Future<Void> result = attempt;
+                    attempt = null;
+                    while (!shardWriters.await(result, SHARD_POLL_MILLIS)) {
+                        if (ctx.canceled()) {
+                            cancelled.set(true);
+                            return;
                         }
                     }
                 }
             });
-            LOG.debug("Finished extraction of file: {}", entry);
+            if (ctx.canceled()) {
+                throw ContextUtils.dpuExceptionCancelled(ctx);
+            }
         }
-        // Publish messsage.
-        if (fileSkipped) {
-            ContextUtils.sendWarn(ctx, "Some files has been skipped during conversion.", "See logs for more details.");
+    }
+
+    /**
+     * Load given file into the output graph, one transaction per commit size statements.
+     */
+    private void loadIntoGraph(final FilesDataUnit.Entry entry, final URI outputGraphUri, final RDFFormat format,
+            final ConversionCheckpoint checkpoint, final long documentScope, final StatementDeduplicator deduplicator)
+            throws DPUException {
+        LOG.debug("Starting extraction of file: {}", entry);
+        faultTolerance.execute(rdfOutput, new FaultTolerance.ConnectionAction() {
+
+            @Override
+            public void action(RepositoryConnection connection) throws Exception {
+                loadFile(connection, entry.getSymbolicName(), entry.getFileURIString(), outputGraphUri, format,
+                        checkpoint, documentScope, deduplicator, null);
+            }
+        });
+        LOG.debug("Finished extraction of file: {}", entry);
+    }
+
+    /**
+     * Load given file into a shard graph, called by a shard writer thread. Uses neither
+     * fault tolerance nor the execution context, see
+     * {@link #awaitShardLoads(GraphShardWriters, List, List, List, AtomicBoolean)}.
+     */
+    private void loadIntoShard(String symbolicName, String fileUri, URI outputGraphUri, RDFFormat format,
+            ConversionCheckpoint checkpoint, long documentScope, StatementDeduplicator deduplicator,
+            AtomicBoolean cancelled) throws Exception {
+        LOG.debug("Starting extraction of file: {}", symbolicName);
+        RepositoryConnection connection = rdfOutput.getConnection();
+        try {
+            loadFile(connection, symbolicName, fileUri, outputGraphUri, format, checkpoint, documentScope,
+                    deduplicator, cancelled);
+        } finally {
+            try {
+                if (connection.isActive()) {
+                    connection.rollback();
+                }
+            } finally {
+                connection.close();
+            }
+        }
+        LOG.debug("Finished extraction of file: {}", symbolicName);
+    }
+
+    /**
+     * @param cancelled
+     *        Checked for cancellation instead of the execution context, which is then not
+     *        used at all; null on the DPU thread.
+     */
+    private void loadFile(RepositoryConnection connection, String symbolicName, String fileUri, URI outputGraphUri,
+            RDFFormat format, ConversionCheckpoint checkpoint, long documentScope, StatementDeduplicator deduplicator,
+            AtomicBoolean cancelled) throws Exception {
+        if (checkpoint.isCompleted(symbolicName)) {
+            LOG.info("File '{}' has already been loaded", symbolicName);
+            return;
+        }
+        if (checkpoint.isSkipped(symbolicName)) {
+            LOG.info("File '{}' has already been skipped", symbolicName);
+            return;
+        }
+        UserExecContext fileCtx = cancelled == null ? ctx : null;
+        CancellableCommitSizeInserter rdfInserter = new CancellableCommitSizeInserter(connection,
+                config.getCommitSize(), fileCtx);
+        rdfInserter.enforceContext(outputGraphUri);
+        rdfInserter.setCheckpoint(checkpoint, symbolicName);
+        final StatementDeduplicator.Filter deduplicationFilter;
+        final RDFHandler rdfHandler;
+        if (deduplicator != null) {
+            deduplicationFilter = deduplicator.wrap(rdfInserter, outputGraphUri, documentScope);
+            // Resume positions must not depend on what other files published meanwhile.
+            rdfHandler = rdfInserter.countBefore(deduplicationFilter);
+        } else {
+            deduplicationFilter = null;
+            rdfHandler = rdfInserter;
+        }
+        File file = new File(java.net.URI.create(fileUri));
+        ConversionProgress progress = new ConversionProgress(fileCtx, symbolicName, file.length(), statistics);
+        progress.setCancelled(cancelled);
+        rdfInserter.setProgress(progress);
+        rdfInserter.setStatistics(statistics);
+        try {
+            load(symbolicName, file, format, rdfHandler, progress);
+            if (deduplicationFilter != null) {
+                deduplicationFilter.publish();
+            }
+        } catch (IOException | RDFHandlerException | RDFParseException | JsonLdError ex) {
+            boolean canceled = cancelled == null ? ctx.canceled() : cancelled.get();
+            if (canceled || !skipFile(symbolicName, fileUri, ex)) {
+                throw ex;
+            }
+            checkpoint.fileSkipped(symbolicName);
+            return;
+        }
+        checkpoint.fileCompleted(symbolicName);
+    }
+
+    /**
+     * Add the output graph of given file together with the metadata of the file, or return
+     * the graph a previous attempt of the execution has added.
+     */
+    private URI addFileOutputGraph(final FilesDataUnit.Entry entry, final ConversionCheckpoint checkpoint)
+            throws DPUException {
+        final String symbolicName = faultTolerance.execute(new FaultTolerance.ActionReturn<String>() {
+
+            @Override
+            public String action() throws Exception {
+                return entry.getSymbolicName();
+            }
+        });
+        URI restoredGraphUri = checkpoint.getGraph(symbolicName);
+        if (restoredGraphUri != null) {
+            // A previous attempt has created the graph and its metadata.
+            return restoredGraphUri;
+        }
+        faultTolerance.execute(new FaultTolerance.Action() {
+
+            @Override
+            public void action() throws Exception {
+                CopyHelpers.copyMetadata(entry.getSymbolicName(), filesInput, rdfOutput);
+            }
+        });
+
+        final URI outputGraphUri = faultTolerance.execute(new FaultTolerance.ActionReturn<URI>() {
+
+            @Override
+            public URI action() throws Exception {
+                URI graphUri;
+                // Skip graphs of files restored from the checkpoint.
+                do {
+                    graphUri = new URIImpl(rdfOutput.getBaseDataGraphURI().stringValue() + "/" + String.valueOf(atomicInteger.getAndIncrement()));
+                } while (checkpoint.isGraphUsed(graphUri));
+                return graphUri;
+            }
+        });
+
+        faultTolerance.execute(new FaultTolerance.Action() {
+
+            @Override
+            public void action() throws Exception {                        
+                updateExistingDataGraphFromFile(entry.getSymbolicName(), outputGraphUri);
+            }
+        });
+
+        faultTolerance.execute(new FaultTolerance.Action() {
+
+            @Override
+            public void action() throws Exception {
+                Resource resource = ResourceHelpers.getResource(filesInput, entry.getSymbolicName());
+                Date now = new Date();
+                resource.setLast_modified(now);
+                ResourceHelpers.setResource(rdfOutput, entry.getSymbolicName(), resource);
+            }
+        });
+        checkpoint.graphCreated(symbolicName, outputGraphUri);
+        return outputGraphUri;
+    }
+
+    /**
+     * Open the checkpoint in the working directory of the execution. If the execution has
+     * been interrupted and is executed again, the checkpoint written by the interrupted
+     * attempt is restored and the conversion continues where it stopped. Output files are
+     * not resumed, they are written again in full.
+     */
+    private ConversionCheckpoint openCheckpoint() throws DPUException {
+        File journal = new File(ctx.getExecMasterContext().getDpuContext().getWorkingDir(), CHECKPOINT_FILE);
+        final ConversionCheckpoint checkpoint;
+        try {
+            checkpoint = ConversionCheckpoint.open(journal);
+        } catch (IOException | RuntimeException ex) {
+            throw ContextUtils.dpuException(ctx, ex, "Can't read conversion checkpoint.");
+        }
+        if (!checkpoint.isEmpty()) {
+            String message = String.format("%d files loaded, %d files skipped before.",
+                    checkpoint.getCompletedFilesCount(), checkpoint.getSkippedFilesCount());
+            LOG.info("Resuming conversion: {}", message);
+            ContextUtils.sendInfo(ctx, "Resuming conversion.", message);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Add a new data graph into the RDF output, or return the graph a previous attempt of
+     * the execution has added.
+     *
+     * @param symbolicName
+     * @param checkpoint
+     * @return URI of the graph.
+     * @throws DPUException
+     */
+    private URI addOutputGraph(final String symbolicName, ConversionCheckpoint checkpoint) throws DPUException {
+        URI restoredGraphUri = checkpoint.getGraph(symbolicName);
+        if (restoredGraphUri != null) {
+            return restoredGraphUri;
+        }
+        final URI graphUri;
+        try {
+            graphUri = rdfOutput.addNewDataGraph(symbolicName);
+        } catch (DataUnitException ex) {
+            throw ContextUtils.dpuException(ctx, ex, "Can't create output graph.");
+        }
+        faultTolerance.execute(new FaultTolerance.Action() {
+
+            @Override
+            public void action() throws Exception {
+                Resource resource = ResourceHelpers.getResource(rdfOutput, symbolicName);
+                Date now = new Date();
+                resource.setLast_modified(now);
+                resource.setCreated(now);
+                ResourceHelpers.setResource(rdfOutput, symbolicName, resource);
+            }
+        });
+        checkpoint.graphCreated(symbolicName, graphUri);
+        return graphUri;
+    }
+
+    /**
+     * Sample the first records of the input files and publish the inferred key to predicate
+     * table into the log and the output metadata. Files that can not be sampled are left out,
+     * they are reported once they are converted.
+     */
+    private InferredSchema inferSchema(List<FilesDataUnit.Entry> files) throws DPUException {
+        SchemaSampler sampler = new SchemaSampler(ValueFactoryImpl.getInstance(), config.getVocab(),
+                config.getSchemaSampleSize());
+        for (final FilesDataUnit.Entry entry : files) {
+            if (sampler.isComplete()) {
+                break;
+            }
+            final String fileUri = getFileUri(entry);
+            try {
+                sampler.sample(new File(java.net.URI.create(fileUri)));
+            } catch (IOException ex) {
+                LOG.warn("Can't sample file '{}' for schema inference", fileUri, ex);
+            }
+        }
+        final InferredSchema schema = sampler.build();
+        String description = schema.describe();
+        LOG.info("Inferred schema: {}", description);
+        ContextUtils.sendInfo(ctx, "Inferred schema with " + schema.getProperties().size() + " keys.", description);
+        faultTolerance.execute(rdfOutput, new FaultTolerance.ConnectionAction() {
+
+            @Override
+            public void action(RepositoryConnection connection) throws Exception {
+                connection.add(schema.toStatements(connection.getValueFactory(),
+                        rdfOutput.getMetadataWriteGraphname()));
+            }
+        });
+        return schema;
+    }
+
+    /**
+     * Parse given file into the handler, item by item if the document would not fit into
+     * the heap budget.
+     */
+    private void load(String symbolicName, File file, RDFFormat format, RDFHandler rdfHandler,
+            ConversionProgress progress) throws IOException, RDFHandlerException, RDFParseException, JsonLdError {
+        ParseErrorListenerEnabledRDFLoader fileLoader = loader;
+        if (memoryGovernor.exceedsBudget(file)) {
+            LOG.info("Converting file '{}' item by item", symbolicName);
+            fileLoader = streamingLoader;
+        }
+        InputStream in = new ProgressInputStream(new FileInputStream(file), progress);
+        try {
+            fileLoader.load(in, file.toURI().toString(), format, rdfHandler, new ParseErrorLogger());
+        } finally {
+            in.close();
+        }
+        progress.finished();
+    }
+
+    /**
+     * Serialize given file into the file output, no repository is involved. A skipped file
+     * leaves nothing in the output.
+     *
+     * @param outputContext
+     *        Identifies the output file for deduplication, null for the single shared output.
+     */
+    private void loadIntoFile(final FilesDataUnit.Entry entry, RDFFileOutput fileOutput, URI outputContext,
+            long documentScope) throws DPUException {
+        final RDFFormat format = getInputFormat(entry);
+        final String symbolicName = faultTolerance.execute(new FaultTolerance.ActionReturn<String>() {
+
+            @Override
+            public String action() throws Exception {
+                return entry.getSymbolicName();
+            }
+        });
+        final String fileUri = getFileUri(entry);
+        LOG.debug("Starting extraction of file: {}", entry);
+        File file = new File(java.net.URI.create(fileUri));
+        ConversionProgress progress = new ConversionProgress(ctx, symbolicName, file.length(), statistics);
+        RDFFileOutput.Document document = fileOutput.startDocument(documentScope,
+                ValueFactoryImpl.getInstance().createURI(fileUri));
+        try {
+            RDFHandler rdfHandler = new ProgressRDFHandler(document, progress);
+            StatementDeduplicator.Filter deduplicationFilter = null;
+            if (deduplicator != null) {
+                deduplicationFilter = deduplicator.wrap(rdfHandler, outputContext, documentScope);
+                rdfHandler = deduplicationFilter;
+            }
+            try {
+                load(symbolicName, file, format, rdfHandler, progress);
+            } catch (IOException | RDFHandlerException | RDFParseException | JsonLdError ex) {
+                if (ctx.canceled()) {
+                    throw ContextUtils.dpuExceptionCancelled(ctx);
+                }
+                if (!skipFile(symbolicName, fileUri, ex)) {
+                    throw ContextUtils.dpuException(ctx, ex, "Can't convert file: " + symbolicName);
+                }
+                return;
+            }
+            try {
+                document.commit();
+            } catch (IOException | RDFHandlerException ex) {
+                throw ContextUtils.dpuException(ctx, ex, "Can't write output file.");
+            }
+            if (deduplicationFilter != null) {
+                deduplicationFilter.publish();
+            }
+        } finally {
+            document.discard();
+        }
+        LOG.debug("Finished extraction of file: {}", entry);
+    }
+
+    private void closeFileOutput(RDFFileOutput fileOutput) throws DPUException {
+        try {
+            fileOutput.close();
+        } catch (IOException ex) {
+            throw ContextUtils.dpuException(ctx, ex, "Can't write output file.");
+        }
+    }
+
+    /**
+     * Add a new file into the files output.
+     *
+     * @param symbolicName
+     * @return File to write into.
+     * @throws DPUException
+     */
+    private File addOutputFile(final String symbolicName) throws DPUException {
+        String fileUri = faultTolerance.execute(new FaultTolerance.ActionReturn<String>() {
+
+            @Override
+            public String action() throws Exception {
+                String fileUri = filesOutput.addNewFile(symbolicName);
+                VirtualPathHelpers.setVirtualPath(filesOutput, symbolicName, symbolicName);
+                Resource resource = ResourceHelpers.getResource(filesOutput, symbolicName);
+                Date now = new Date();
+                resource.setLast_modified(now);
+                resource.setCreated(now);
+                ResourceHelpers.setResource(filesOutput, symbolicName, resource);
+                return fileUri;
+            }
+        });
+        LOG.info("Output file: {}", symbolicName);
+        return new File(java.net.URI.create(fileUri));
+    }
+
+    private RDFFormat getFileOutputFormat() throws DPUException {
+        RDFFormat format = RDFFormat.valueOf(config.getFileOutputFormat());
+        if (format == null) {
+            throw ContextUtils.dpuException(ctx, "Unknown output format: " + config.getFileOutputFormat());
+        }
+        if (!RDFFileOutput.FORMATS.contains(format)) {
+            throw ContextUtils.dpuException(ctx, "Unsupported output format: " + config.getFileOutputFormat());
+        }
+        return format;
+    }
+
+    private String getFileUri(final FilesDataUnit.Entry entry) throws DPUException {
+        return faultTolerance.execute(new FaultTolerance.ActionReturn<String>() {
+
+            @Override
+            public String action() throws Exception {
+                return entry.getFileURIString();
+            }
+        });
+    }
+
+    private RDFFormat getInputFormat(final FilesDataUnit.Entry entry) throws DPUException {
+        return faultTolerance.execute(new FaultTolerance.ActionReturn<RDFFormat>() {
+
+            @Override
+            public RDFFormat action() throws Exception {
+                String inputVirtualPath = MetadataUtils.get(filesInput, entry, FilesVocabulary.UV_VIRTUAL_PATH);
+                if (inputVirtualPath != null) {
+                    return Rio.getParserFormatForFileName(inputVirtualPath);
+                } else {
+                    return Rio.getParserFormatForFileName(entry.getSymbolicName());
+                }
+            }
+        });
+    }
+
+    /**
+     * Apply fatal error handling policy to a file that could not be converted.
+     *
+     * @param symbolicName
+     * @param fileUri
+     * @param cause
+     *        Why the file could not be converted.
+     * @return True if the file is skipped, false if the execution should stop.
+     */
+    private boolean skipFile(String symbolicName, String fileUri, Exception cause) {
+        switch (config.getFatalErrorHandling()) {
+            case JSONToRDFConfig_V1.SKIP_CONTINUE_NEXT_FILE_ERROR_HANDLING:
+                LOG.error("Skipping file name '{}' with path '{}'",
+                        symbolicName,
+                        fileUri,
+                        cause);
+                fileSkipped.set(true);
+                statistics.fileSkipped();
+                return true;
+            case JSONToRDFConfig_V1.STOP_EXTRACTION_ERROR_HANDLING:
+            default:
+                return false;
         }
     }
 
@@ -0,0 +1,423 @@
+package com.tenforce.jsonToRdf;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.ParseErrorLogger;
+
+import com.github.jsonldjava.core.DocumentLoader;
+
+/**
+ * Command line converter that runs the conversion core of {@link JSONToRDF} over a
+ * directory of files without UnifiedViews. Every input file is written into its own
+ * output file, files are converted in parallel.
+ *
+ * Usage:
+ *
+ * <pre>
+ * JSONToRDFBatchConverter [--format=nt|nq|brf] [--threads=n] [--&lt;config field&gt;=value ...] input output
+ * </pre>
+ *
+ * Config fields are those of {@link JSONToRDFConfig_V1}, for example
+ * {@code --vocab=http://example.com/ --fatalErrorHandling=SKIP_CONTINUE_NEXT_FILE}.
+ */
+public class JSONToRDFBatchConverter {
+
+    /**
+     * Largest amount of small files (in bytes) grouped into a single task.
+     */
+    static final long MAX_BATCH_SIZE = 4L * 1024L * 1024L;
+
+    /**
+     * Reads bytes allocated by a thread, null if the JVM can't tell.
+     */
+    private static final Method THREAD_ALLOCATED_BYTES = findThreadAllocatedBytes();
+
+    private final JSONToRDFConfig_V1 config;
+
+    private final RDFFormat outputFormat;
+
+    private final int threads;
+
+    private final ParseErrorListenerEnabledRDFLoader loader;
+
+    private final ParseErrorListenerEnabledRDFLoader streamingLoader;
+
+    private final MemoryGovernor memoryGovernor;
+
+    private final AtomicLong convertedFiles = new AtomicLong();
+
+    private final AtomicLong skippedFiles = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong statements = new AtomicLong();
+
+    /**
+     * Bytes allocated on the heap by the conversion of the files.
+     */
+    private final AtomicLong allocatedBytes = new AtomicLong();
+
+    /**
+     * Set once the JVM could not tell what the conversion of a file allocated, the total is
+     * then not reported. Never cleared, so no file can bring the total back.
+     */
+    private final AtomicBoolean allocationUnknown = new AtomicBoolean(false);
+
+    /**
+     * Logged periodically while the files are converted.
+     */
+    private final RunStatistics statistics = new RunStatistics();
+
+    /**
+     * @param config
+     * @param outputFormat
+     * @param threads
+     * @param schema
+     *        Key to predicate table for the fast engine, may be null.
+     */
+    public JSONToRDFBatchConverter(JSONToRDFConfig_V1 config, RDFFormat outputFormat, int threads,
+            InferredSchema schema) {
+        this.config = config;
+        this.outputFormat = outputFormat;
+        this.threads = threads;
+        DocumentLoader documentLoader = ConversionEngines.createDocumentLoader(config);
+        this.loader = ConversionEngines.createLoader(config, ValueFactoryImpl.getInstance(), schema,
+                documentLoader, false);
+        this.streamingLoader = ConversionEngines.createLoader(config, ValueFactoryImpl.getInstance(), schema,
+                documentLoader, true);
+        // Documents converted at the same time share the heap.
+        int heapBudgetPercent = config.getHeapBudgetPercent();
+        if (heapBudgetPercent > 0) {
+            heapBudgetPercent = Math.max(1, heapBudgetPercent / threads);
+        }
+        this.memoryGovernor = new MemoryGovernor(heapBudgetPercent);
+    }
+
+    /**
+     * Convert all files under input directory into output directory.
+     *
+     * @param inputDirectory
+     * @param outputDirectory
+     * @return False if at least one file has been skipped.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public boolean convert(final File inputDirectory, final File outputDirectory) throws IOException,
+            InterruptedException {
+        final long start = System.currentTimeMillis();
+        // Largest files first, so a huge file does not start last while the other threads idle.
+        FileScheduler<File> scheduler = new FileScheduler<>();
+        for (File file : listFiles(inputDirectory)) {
+            scheduler.add(file, file);
+        }
+        long batchSize = batchSize(scheduler.getTotalSize(), threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        statistics.startReporting(config.getStatisticsIntervalSeconds());
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (final List<File> batch : scheduler.batches(batchSize)) {
+                results.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        for (File file : batch) {
+                            String relativePath = inputDirectory.toURI().relativize(file.toURI()).getPath();
+                            File outputFile = new File(outputDirectory, relativePath + "."
+                                    + outputFormat.getDefaultFileExtension());
+                            convertFile(file, outputFile);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException ex) {
+                    throw new IOException("Conversion failed.", ex.getCause());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            statistics.stopReporting();
+        }
+        long duration = Math.max(1L, System.currentTimeMillis() - start);
+        System.out.println(String.format("Converted %d files (%d skipped), %d bytes, %d statements in %d ms: "
+                + "%d statements/s, %.2f MB/s using %d threads.", convertedFiles.get(), skippedFiles.get(),
+                bytes.get(), statements.get(), duration, statements.get() * 1000L / duration,
+                bytes.get() / 1024.0 / 1024.0 * 1000.0 / duration, threads));
+        if (!allocationUnknown.get()) {
+            System.out.println(String.format("Allocated %.1f MB, %d bytes per file, %d bytes per statement.",
+                    allocatedBytes.get() / 1024.0 / 1024.0, allocatedBytes.get() / Math.max(1L, convertedFiles.get()),
+                    allocatedBytes.get() / Math.max(1L, statements.get())));
+        }
+        return skippedFiles.get() == 0L;
+    }
+
+    private void convertFile(File file, File outputFile) throws Exception {
+        long allocatedBefore = getAllocatedBytes();
+        try {
+            convertFileMeasured(file, outputFile);
+        } finally {
+            long allocatedAfter = getAllocatedBytes();
+            if (allocatedBefore < 0L || allocatedAfter < 0L) {
+                allocationUnknown.set(true);
+            } else {
+                allocatedBytes.addAndGet(allocatedAfter - allocatedBefore);
+            }
+        }
+    }
+
+    /**
+     * @param totalSize
+     *        Size of all files.
+     * @param threads
+     * @return Size of a batch of small files: enough batches per thread to balance the tail,
+     *         at most {@link #MAX_BATCH_SIZE}.
+     */
+    static long batchSize(long totalSize, int threads) {
+        return Math.max(1L, Math.min(MAX_BATCH_SIZE, totalSize / (threads * 16L)));
+    }
+
+    /**
+     * @return Bytes allocated by the current thread so far, -1 if not supported by the JVM.
+     */
+    private static long getAllocatedBytes() {
+        if (THREAD_ALLOCATED_BYTES == null) {
+            return -1L;
+        }
+        try {
+            return (Long) THREAD_ALLOCATED_BYTES.invoke(ManagementFactory.getThreadMXBean(),
+                    Thread.currentThread().getId());
+        } catch (IllegalAccessException | InvocationTargetException | RuntimeException ex) {
+            return -1L;
+        }
+    }
+
+    /**
+     * The JVM specific interface is loaded by name from the loader of the platform bean, so the
+     * bundle does not import com.sun.management.
+     *
+     * @return Method measuring allocations of a thread, null if the JVM has none.
+     */
+    private static Method findThreadAllocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        try {
+            Class<?> type = Class.forName("com.sun.management.ThreadMXBean", false,
+                    threads.getClass().getClassLoader());
+            if (type.isInstance(threads)) {
+                return type.getMethod("getThreadAllocatedBytes", long.class);
+            }
+        } catch (ClassNotFoundException | NoSuchMethodException | RuntimeException ex) {
+            // Allocations are not reported.
+        }
+        return null;
+    }
+
+    private void convertFileMeasured(File file, File outputFile) throws Exception {
+        outputFile.getParentFile().mkdirs();
+        ConversionProgress progress = new ConversionProgress(null, file.getPath(), file.length(), statistics);
+        StatementDeduplicator deduplicator = null;
+        if (config.isDeduplicateStatements()) {
+            deduplicator = new StatementDeduplicator(config.getDeduplicationCapacity());
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile), 64 * 1024)) {
+            RDFWriter writer = Rio.createWriter(outputFormat, out);
+            SingleDocumentRDFHandler document = new SingleDocumentRDFHandler(writer,
+                    outputFormat.supportsContexts() ? ValueFactoryImpl.getInstance().createURI(file.toURI().toString())
+                            : null);
+            RDFHandler handler = new ProgressRDFHandler(document, progress);
+            StatementDeduplicator.Filter deduplicationFilter = null;
+            if (deduplicator != null) {
+                deduplicationFilter = deduplicator.wrap(handler, null, 0L);
+                handler = deduplicationFilter;
+            }
+            ParseErrorListenerEnabledRDFLoader fileLoader = memoryGovernor.exceedsBudget(file) ? streamingLoader
+                    : loader;
+            document.begin();
+            try (InputStream in = new ProgressInputStream(new FileInputStream(file), progress)) {
+                fileLoader.load(in, file.toURI().toString(), null, handler, new ParseErrorLogger());
+            }
+            document.finish();
+            if (deduplicationFilter != null) {
+                deduplicationFilter.publish();
+            }
+        } catch (Exception ex) {
+            if (JSONToRDFConfig_V1.SKIP_CONTINUE_NEXT_FILE_ERROR_HANDLING.equals(config.getFatalErrorHandling())) {
+                System.err.println("Skipping file '" + file + "': " + ex.getMessage());
+                skippedFiles.incrementAndGet();
+                statistics.fileSkipped();
+                outputFile.delete();
+                return;
+            }
+            throw new IOException("Can't convert file '" + file + "'.", ex);
+        }
+        progress.finished();
+        convertedFiles.incrementAndGet();
+        bytes.addAndGet(progress.getBytesRead());
+        statements.addAndGet(progress.getStatements());
+    }
+
+    /**
+     * Infer key to predicate table from the first records of the files.
+     *
+     * @param config
+     * @param files
+     * @return Table of keys found in the sampled records.
+     */
+    static InferredSchema inferSchema(JSONToRDFConfig_V1 config, List<File> files) {
+        SchemaSampler sampler = new SchemaSampler(ValueFactoryImpl.getInstance(), config.getVocab(),
+                config.getSchemaSampleSize());
+        for (File file : files) {
+            if (sampler.isComplete()) {
+                break;
+            }
+            try {
+                sampler.sample(file);
+            } catch (IOException ex) {
+                System.err.println("Can't sample file '" + file + "': " + ex.getMessage());
+            }
+        }
+        return sampler.build();
+    }
+
+    static List<File> listFiles(File directory) throws IOException {
+        final List<File> files = new ArrayList<>();
+        Files.walkFileTree(directory.toPath(), new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    files.add(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    /**
+     * Set a property of the configuration from its name and textual value.
+     */
+    static void setConfigProperty(JSONToRDFConfig_V1 config, String name, String value) {
+        try {
+            BeanInfo beanInfo = Introspector.getBeanInfo(JSONToRDFConfig_V1.class);
+            for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+                if (!descriptor.getName().equals(name) || descriptor.getWriteMethod() == null) {
+                    continue;
+                }
+                Class<?> type = descriptor.getPropertyType();
+                Object converted;
+                if (type == int.class || type == Integer.class) {
+                    converted = Integer.valueOf(value);
+                } else if (type == boolean.class || type == Boolean.class) {
+                    converted = Boolean.valueOf(value);
+                } else if (type == String.class) {
+                    converted = value;
+                } else {
+                    break;
+                }
+                descriptor.getWriteMethod().invoke(config, converted);
+                return;
+            }
+        } catch (IntrospectionException | IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalArgumentException("Can't set option: " + name, ex);
+        }
+        throw new IllegalArgumentException("Unknown option: " + name);
+    }
+
+    private static RDFFormat parseFormat(String value) {
+        switch (value) {
+            case "nt":
+                return RDFFormat.NTRIPLES;
+            case "nq":
+                return RDFFormat.NQUADS;
+            case "brf":
+                return RDFFormat.BINARY;
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + value);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: JSONToRDFBatchConverter [--format=nt|nq|brf] [--threads=n] "
+                + "[--<config field>=value ...] <input directory> <output directory>");
+    }
+
+    public static void main(String[] args) throws Exception {
+        JSONToRDFConfig_V1 config = new JSONToRDFConfig_V1();
+        RDFFormat format = RDFFormat.NTRIPLES;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> paths = new ArrayList<>();
+        try {
+            for (String arg : args) {
+                if (!arg.startsWith("--")) {
+                    paths.add(arg);
+                    continue;
+                }
+                int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    throw new IllegalArgumentException("Option without value: " + arg);
+                }
+                String name = arg.substring(2, separator);
+                String value = arg.substring(separator + 1);
+                if ("format".equals(name)) {
+                    format = parseFormat(value);
+                } else if ("threads".equals(name)) {
+                    threads = Math.max(1, Integer.parseInt(value));
+                } else {
+                    setConfigProperty(config, name, value);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            usage();
+            System.exit(2);
+        }
+        if (paths.size() != 2) {
+            usage();
+            System.exit(2);
+        }
+        InferredSchema schema = null;
+        if (config.isInferSchema()) {
+            schema = inferSchema(config, listFiles(new File(paths.get(0))));
+            System.out.println("Inferred schema: " + schema.describe());
+        }
+        JSONToRDFBatchConverter converter = new JSONToRDFBatchConverter(config, format, threads, schema);
+        boolean complete = converter.convert(new File(paths.get(0)), new File(paths.get(1)));
+        System.exit(complete ? 0 : 1);
+    }
+}
@@ -15,6 +15,16 @@ public class JSONToRDFConfig_V1 {
 
     public static final String USE_FIXED_SYMBOLIC_NAME = "USE_SINGLE_SYMBOLIC_NAME";
 
+    public static final String OUTPUT_RDF_DATA_UNIT = "RDF_DATA_UNIT";
+
+    public static final String OUTPUT_FILES = "FILES";
+
+    public static final String CONVERSION_ENGINE_JSONLD = "JSONLD";
+
+    public static final String CONVERSION_ENGINE_FAST = "FAST";
+
+    public static final String CONVERSION_ENGINE_STREAMING = "STREAMING";
+
 
 
     /**
@@ -31,6 +41,59 @@ public class JSONToRDFConfig_V1 {
 
     private String vocab = "http://testruimte/";
 
+    /**
+     * If true then duplicate statements are dropped before they are inserted.
+     */
+    private boolean deduplicateStatements = false;
+
+    /**
+     * Maximum number of statement fingerprints remembered for deduplication (8-16 bytes each).
+     */
+    private int deduplicationCapacity = 1000000;
+
+    /**
+     * Share (in percent) of the available heap a single document may use before it is
+     * converted item by item, 0 disables the check.
+     */
+    private int heapBudgetPercent = 50;
+
+    /**
+     * Engine that converts JSON documents into RDF.
+     */
+    private String conversionEngine = CONVERSION_ENGINE_JSONLD;
+
+    /**
+     * If true then a key to predicate table is inferred from the first records before
+     * conversion, the fast conversion engine uses it.
+     */
+    private boolean inferSchema = false;
+
+    /**
+     * Number of records sampled to infer the key to predicate table.
+     */
+    private int schemaSampleSize = 1000;
+
+    /**
+     * If true then JSON-LD documents (with their own @context or in .jsonld files) are
+     * converted as they are, instead of replacing their context by the @vocab context.
+     */
+    private boolean honourJsonLd = false;
+
+    /**
+     * Directory of JSON-LD contexts used instead of fetching them from the web, empty for none.
+     */
+    private String contextDirectory = "";
+
+    /**
+     * If true then contexts missing in the context directory are fetched from the web.
+     */
+    private boolean remoteContextsAllowed = true;
+
+    /**
+     * Interval of the run statistics log lines in seconds, 0 to log them only at the end.
+     */
+    private int statisticsIntervalSeconds = 60;
+
     /**
      * Used to determine action if an exception is thrown during loading of a single file.
      */
@@ -56,6 +119,33 @@ public class JSONToRDFConfig_V1 {
      */
     private String outputSymbolicName = null;
 
+    /**
+     * If outputNaming == USE_FIXED_SYMBOLIC_NAME then the output is split into this many
+     * graphs, each written by its own thread, 1 to write a single graph.
+     */
+    private int outputShards = 1;
+
+    /**
+     * Where the statements are written: into the RDF data unit or serialized into files.
+     */
+    private String outputMode = OUTPUT_RDF_DATA_UNIT;
+
+    /**
+     * Name of the RDF format used if outputMode == OUTPUT_FILES.
+     */
+    private String fileOutputFormat = "N-Triples";
+
+    /**
+     * If true then output files are gzip compressed.
+     */
+    private boolean fileOutputCompressed = true;
+
+    /**
+     * If outputNaming == USE_FIXED_SYMBOLIC_NAME then a new output file is started once
+     * the current one has this many megabytes, 0 to write a single file.
+     */
+    private int fileOutputRollSizeMB = 0;
+
     public JSONToRDFConfig_V1() {
         this.symbolicNameToBaseURIMap = new LinkedHashMap<>();
         this.symbolicNameToFormatMap = new LinkedHashMap<>();
@@ -85,6 +175,86 @@ public class JSONToRDFConfig_V1 {
 	vocab = v;
     }
 
+    public boolean isDeduplicateStatements() {
+        return deduplicateStatements;
+    }
+
+    public void setDeduplicateStatements(boolean deduplicateStatements) {
+        this.deduplicateStatements = deduplicateStatements;
+    }
+
+    public int getDeduplicationCapacity() {
+        return deduplicationCapacity;
+    }
+
+    public void setDeduplicationCapacity(int deduplicationCapacity) {
+        this.deduplicationCapacity = deduplicationCapacity;
+    }
+
+    public int getHeapBudgetPercent() {
+        return heapBudgetPercent;
+    }
+
+    public void setHeapBudgetPercent(int heapBudgetPercent) {
+        this.heapBudgetPercent = heapBudgetPercent;
+    }
+
+    public String getConversionEngine() {
+        return conversionEngine;
+    }
+
+    public void setConversionEngine(String conversionEngine) {
+        this.conversionEngine = conversionEngine;
+    }
+
+    public boolean isInferSchema() {
+        return inferSchema;
+    }
+
+    public void setInferSchema(boolean inferSchema) {
+        this.inferSchema = inferSchema;
+    }
+
+    public int getSchemaSampleSize() {
+        return schemaSampleSize;
+    }
+
+    public void setSchemaSampleSize(int schemaSampleSize) {
+        this.schemaSampleSize = schemaSampleSize;
+    }
+
+    public boolean isHonourJsonLd() {
+        return honourJsonLd;
+    }
+
+    public void setHonourJsonLd(boolean honourJsonLd) {
+        this.honourJsonLd = honourJsonLd;
+    }
+
+    public String getContextDirectory() {
+        return contextDirectory;
+    }
+
+    public void setContextDirectory(String contextDirectory) {
+        this.contextDirectory = contextDirectory;
+    }
+
+    public boolean isRemoteContextsAllowed() {
+        return remoteContextsAllowed;
+    }
+
+    public void setRemoteContextsAllowed(boolean remoteContextsAllowed) {
+        this.remoteContextsAllowed = remoteContextsAllowed;
+    }
+
+    public int getStatisticsIntervalSeconds() {
+        return statisticsIntervalSeconds;
+    }
+
+    public void setStatisticsIntervalSeconds(int statisticsIntervalSeconds) {
+        this.statisticsIntervalSeconds = statisticsIntervalSeconds;
+    }
+
     public int getCommitSize() {
         return commitSize;
     }
@@ -133,4 +303,44 @@ public class JSONToRDFConfig_V1 {
         this.outputSymbolicName = outputSymbolicName;
     }
 
+    public int getOutputShards() {
+        return outputShards;
+    }
+
+    public void setOutputShards(int outputShards) {
+        this.outputShards = outputShards;
+    }
+
+    public String getOutputMode() {
+        return outputMode;
+    }
+
+    public void setOutputMode(String outputMode) {
+        this.outputMode = outputMode;
+    }
+
+    public String getFileOutputFormat() {
+        return fileOutputFormat;
+    }
+
+    public void setFileOutputFormat(String fileOutputFormat) {
+        this.fileOutputFormat = fileOutputFormat;
+    }
+
+    public boolean isFileOutputCompressed() {
+        return fileOutputCompressed;
+    }
+
+    public void setFileOutputCompressed(boolean fileOutputCompressed) {
+        this.fileOutputCompressed = fileOutputCompressed;
+    }
+
+    public int getFileOutputRollSizeMB() {
+        return fileOutputRollSizeMB;
+    }
+
+    public void setFileOutputRollSizeMB(int fileOutputRollSizeMB) {
+        this.fileOutputRollSizeMB = fileOutputRollSizeMB;
+    }
+
 }
@@ -4,6 +4,8 @@ import com.vaadin.data.Property;
 import com.vaadin.data.util.ObjectProperty;
 import com.vaadin.ui.*;
 
+import org.openrdf.rio.RDFFormat;
+
 import eu.unifiedviews.dpu.config.DPUConfigException;
 import eu.unifiedviews.helpers.dpu.vaadin.dialog.AbstractDialog;
 
@@ -21,16 +23,70 @@ public class JSONToRDFVaadinDialog extends AbstractDialog<JSONToRDFConfig_V1> {
     private static final String VOCAB_LABEL = "Base URI for generated properties (this becomes a @vocab entry in the @context)";
 
 
+    private static final String DEDUPLICATE_LABEL = "Drop duplicate statements before inserting them";
+
+    private static final String DEDUPLICATION_CAPACITY_LABEL = "Maximum number of remembered statements for duplicate detection";
+
+    private static final String HEAP_BUDGET_LABEL = "Share of available heap (percent) a single document may use before it is converted item by item (0 = always in memory)";
+
+    private static final String INFER_SCHEMA_LABEL = "Infer key to property table from the first records (used by the fast engine)";
+
+    private static final String SCHEMA_SAMPLE_SIZE_LABEL = "Number of records sampled to infer the key to property table";
+
+    private static final String STATISTICS_INTERVAL_LABEL = "Log run statistics every (seconds, 0 = only at the end)";
+
+    private static final String HONOUR_JSON_LD_LABEL = "Convert JSON-LD documents (own @context or .jsonld files) as they are";
+
+    private static final String CONTEXT_DIRECTORY_LABEL = "Directory of offline JSON-LD contexts (fetched contexts are stored there, empty = none)";
+
+    private static final String REMOTE_CONTEXTS_LABEL = "Fetch contexts missing in the context directory from the web";
+
     private final ObjectProperty<Integer> commitSize = new ObjectProperty<>(0);
 
+    private final ObjectProperty<Integer> heapBudgetPercent = new ObjectProperty<>(0);
+
+    private final ObjectProperty<Boolean> deduplicate = new ObjectProperty<>(false);
+
+    private final ObjectProperty<Integer> deduplicationCapacity = new ObjectProperty<>(0);
+
     private final ObjectProperty<String> vocab = new ObjectProperty<>("");
 
+    private final ObjectProperty<Boolean> inferSchema = new ObjectProperty<>(false);
+
+    private final ObjectProperty<Integer> schemaSampleSize = new ObjectProperty<>(0);
+
+    private final ObjectProperty<Boolean> honourJsonLd = new ObjectProperty<>(false);
+
+    private final ObjectProperty<Integer> statisticsInterval = new ObjectProperty<>(0);
+
+    private final ObjectProperty<String> contextDirectory = new ObjectProperty<>("");
+
+    private final ObjectProperty<Boolean> remoteContextsAllowed = new ObjectProperty<>(true);
+
+    private static final String FILE_OUTPUT_ROLL_SIZE_LABEL = "Start a new output file after (MB, only with single fixed symbolic name, 0 = single file)";
+
+    private final ObjectProperty<Boolean> fileOutputCompressed = new ObjectProperty<>(true);
+
+    private final ObjectProperty<Integer> fileOutputRollSize = new ObjectProperty<>(0);
+
+    private static final String OUTPUT_SHARDS_LABEL = "Number of output graphs written in parallel (only with single fixed symbolic name into RDF output, 1 = single graph)";
+
+    private final ObjectProperty<Integer> outputShards = new ObjectProperty<>(1);
+
     private ComboBox comboFailPolicy;
 
+    private ComboBox comboConversionEngine;
+
+    private ComboBox comboOutputMode;
+
+    private ComboBox comboFileOutputFormat;
+
     private ComboBox comboOutputGraph;
 
     private TextField txtSymbolicName;
 
+    private TextField txtDeduplicationCapacity;
+
     public JSONToRDFVaadinDialog() {
         super(JSONToRDF.class);
     }
@@ -54,6 +110,45 @@ public class JSONToRDFVaadinDialog extends AbstractDialog<JSONToRDFConfig_V1> {
 
 	mainLayout.addComponent(new TextField(VOCAB_LABEL, vocab));
 
+        final CheckBox checkDeduplicate = new CheckBox(DEDUPLICATE_LABEL, deduplicate);
+        mainLayout.addComponent(checkDeduplicate);
+
+        txtDeduplicationCapacity = new TextField(DEDUPLICATION_CAPACITY_LABEL, deduplicationCapacity);
+        mainLayout.addComponent(txtDeduplicationCapacity);
+
+        checkDeduplicate.addValueChangeListener(new Property.ValueChangeListener() {
+
+            @Override
+            public void valueChange(Property.ValueChangeEvent event) {
+                txtDeduplicationCapacity.setEnabled(Boolean.TRUE.equals(event.getProperty().getValue()));
+            }
+        });
+
+        mainLayout.addComponent(new TextField(HEAP_BUDGET_LABEL, heapBudgetPercent));
+
+        comboConversionEngine = new ComboBox("Conversion engine:");
+        comboConversionEngine.addItem(JSONToRDFConfig_V1.CONVERSION_ENGINE_JSONLD);
+        comboConversionEngine.setItemCaption(JSONToRDFConfig_V1.CONVERSION_ENGINE_JSONLD, "JSON-LD (reference, full fidelity)");
+        comboConversionEngine.addItem(JSONToRDFConfig_V1.CONVERSION_ENGINE_FAST);
+        comboConversionEngine.setItemCaption(JSONToRDFConfig_V1.CONVERSION_ENGINE_FAST, "Fast (plain JSON without expansion, JSON-LD otherwise)");
+        comboConversionEngine.addItem(JSONToRDFConfig_V1.CONVERSION_ENGINE_STREAMING);
+        comboConversionEngine.setItemCaption(JSONToRDFConfig_V1.CONVERSION_ENGINE_STREAMING, "Streaming (top-level arrays item by item)");
+        comboConversionEngine.setInvalidAllowed(false);
+        comboConversionEngine.setNullSelectionAllowed(false);
+        mainLayout.addComponent(comboConversionEngine);
+
+        mainLayout.addComponent(new CheckBox(INFER_SCHEMA_LABEL, inferSchema));
+
+        mainLayout.addComponent(new TextField(SCHEMA_SAMPLE_SIZE_LABEL, schemaSampleSize));
+
+        mainLayout.addComponent(new CheckBox(HONOUR_JSON_LD_LABEL, honourJsonLd));
+
+        mainLayout.addComponent(new TextField(CONTEXT_DIRECTORY_LABEL, contextDirectory));
+
+        mainLayout.addComponent(new CheckBox(REMOTE_CONTEXTS_LABEL, remoteContextsAllowed));
+
+        mainLayout.addComponent(new TextField(STATISTICS_INTERVAL_LABEL, statisticsInterval));
+
         comboFailPolicy = new ComboBox("What to do if extraction on a single file fail:");
         comboFailPolicy.addItem(JSONToRDFConfig_V1.SKIP_CONTINUE_NEXT_FILE_ERROR_HANDLING);
         comboFailPolicy.setItemCaption(JSONToRDFConfig_V1.SKIP_CONTINUE_NEXT_FILE_ERROR_HANDLING, "Skip and continue");
@@ -73,6 +168,40 @@ public class JSONToRDFVaadinDialog extends AbstractDialog<JSONToRDFConfig_V1> {
         comboOutputGraph.setImmediate(true);
         mainLayout.addComponent(comboOutputGraph);
 
+        comboOutputMode = new ComboBox("Write output into:");
+        comboOutputMode.addItem(JSONToRDFConfig_V1.OUTPUT_RDF_DATA_UNIT);
+        comboOutputMode.setItemCaption(JSONToRDFConfig_V1.OUTPUT_RDF_DATA_UNIT, "RDF data unit (rdfOutput)");
+        comboOutputMode.addItem(JSONToRDFConfig_V1.OUTPUT_FILES);
+        comboOutputMode.setItemCaption(JSONToRDFConfig_V1.OUTPUT_FILES, "Serialized files (filesOutput)");
+        comboOutputMode.setInvalidAllowed(false);
+        comboOutputMode.setNullSelectionAllowed(false);
+        comboOutputMode.setImmediate(true);
+        mainLayout.addComponent(comboOutputMode);
+
+        comboFileOutputFormat = new ComboBox("Output file format:");
+        comboFileOutputFormat.addItem(RDFFormat.NTRIPLES.getName());
+        comboFileOutputFormat.addItem(RDFFormat.NQUADS.getName());
+        comboFileOutputFormat.setInvalidAllowed(false);
+        comboFileOutputFormat.setNullSelectionAllowed(false);
+        mainLayout.addComponent(comboFileOutputFormat);
+
+        final CheckBox checkFileOutputCompressed = new CheckBox("Compress output files (gzip)", fileOutputCompressed);
+        mainLayout.addComponent(checkFileOutputCompressed);
+
+        final TextField txtFileOutputRollSize = new TextField(FILE_OUTPUT_ROLL_SIZE_LABEL, fileOutputRollSize);
+        mainLayout.addComponent(txtFileOutputRollSize);
+
+        comboOutputMode.addValueChangeListener(new Property.ValueChangeListener() {
+
+            @Override
+            public void valueChange(Property.ValueChangeEvent event) {
+                boolean files = JSONToRDFConfig_V1.OUTPUT_FILES.equals(event.getProperty().getValue());
+                comboFileOutputFormat.setEnabled(files);
+                checkFileOutputCompressed.setEnabled(files);
+                txtFileOutputRollSize.setEnabled(files);
+            }
+        });
+
         txtSymbolicName = new TextField("Fixed output symbolic name:");
         txtSymbolicName.setDescription("Symbolic name for output, if left blank an 'unique' symbolic is generated.");
         txtSymbolicName.setWidth("100%");
@@ -81,11 +210,15 @@ public class JSONToRDFVaadinDialog extends AbstractDialog<JSONToRDFConfig_V1> {
         txtSymbolicName.setNullRepresentation("");
         mainLayout.addComponent(txtSymbolicName);
 
+        final TextField txtOutputShards = new TextField(OUTPUT_SHARDS_LABEL, outputShards);
+        mainLayout.addComponent(txtOutputShards);
+
         comboOutputGraph.addValueChangeListener(new Property.ValueChangeListener() {
 
             @Override
             public void valueChange(Property.ValueChangeEvent event) {
                 txtSymbolicName.setEnabled(JSONToRDFConfig_V1.USE_FIXED_SYMBOLIC_NAME.equals(event.getProperty().getValue()));
+                txtOutputShards.setEnabled(JSONToRDFConfig_V1.USE_FIXED_SYMBOLIC_NAME.equals(event.getProperty().getValue()));
             }
         });
 
@@ -97,8 +230,24 @@ public class JSONToRDFVaadinDialog extends AbstractDialog<JSONToRDFConfig_V1> {
     public void setConfiguration(JSONToRDFConfig_V1 conf) throws DPUConfigException {
         commitSize.setValue(conf.getCommitSize());
 	vocab.setValue(conf.getVocab());
+        deduplicate.setValue(conf.isDeduplicateStatements());
+        deduplicationCapacity.setValue(conf.getDeduplicationCapacity());
+        txtDeduplicationCapacity.setEnabled(conf.isDeduplicateStatements());
+        heapBudgetPercent.setValue(conf.getHeapBudgetPercent());
+        comboConversionEngine.setValue(conf.getConversionEngine());
+        inferSchema.setValue(conf.isInferSchema());
+        schemaSampleSize.setValue(conf.getSchemaSampleSize());
+        honourJsonLd.setValue(conf.isHonourJsonLd());
+        contextDirectory.setValue(conf.getContextDirectory() == null ? "" : conf.getContextDirectory());
+        remoteContextsAllowed.setValue(conf.isRemoteContextsAllowed());
+        statisticsInterval.setValue(conf.getStatisticsIntervalSeconds());
         comboFailPolicy.setValue(conf.getFatalErrorHandling());
         comboOutputGraph.setValue(conf.getOutputNaming());
+        comboFileOutputFormat.setValue(conf.getFileOutputFormat());
+        fileOutputCompressed.setValue(conf.isFileOutputCompressed());
+        fileOutputRollSize.setValue(conf.getFileOutputRollSizeMB());
+        comboOutputMode.setValue(conf.getOutputMode());
+        outputShards.setValue(conf.getOutputShards());
 
         txtSymbolicName.setValue(conf.getOutputSymbolicName());
         txtSymbolicName.setEnabled(JSONToRDFConfig_V1.USE_FIXED_SYMBOLIC_NAME.equals(comboOutputGraph.getValue()));
@@ -109,9 +258,46 @@ public class JSONToRDFVaadinDialog extends AbstractDialog<JSONToRDFConfig_V1> {
         JSONToRDFConfig_V1 conf = new JSONToRDFConfig_V1();
 	conf.setVocab(vocab.getValue());
         conf.setCommitSize(commitSize.getValue());
+        conf.setDeduplicateStatements(deduplicate.getValue());
+        // The capacity is only used with deduplication, otherwise an invalid value keeps the default.
+        if (deduplicationCapacity.getValue() == null || deduplicationCapacity.getValue() < 1) {
+            if (conf.isDeduplicateStatements()) {
+                throw new DPUConfigException("Deduplication capacity must be a positive number.");
+            }
+        } else {
+            conf.setDeduplicationCapacity(deduplicationCapacity.getValue());
+        }
+        if (heapBudgetPercent.getValue() == null || heapBudgetPercent.getValue() < 0 || heapBudgetPercent.getValue() > 100) {
+            throw new DPUConfigException("Heap budget must be between 0 and 100 percent.");
+        }
+        conf.setHeapBudgetPercent(heapBudgetPercent.getValue());
+        conf.setConversionEngine(comboConversionEngine.getValue().toString());
+        conf.setInferSchema(inferSchema.getValue());
+        if (schemaSampleSize.getValue() == null || schemaSampleSize.getValue() < 1) {
+            throw new DPUConfigException("Number of sampled records must be a positive number.");
+        }
+        conf.setSchemaSampleSize(schemaSampleSize.getValue());
+        conf.setHonourJsonLd(honourJsonLd.getValue());
+        conf.setContextDirectory(contextDirectory.getValue() == null ? "" : contextDirectory.getValue().trim());
+        conf.setRemoteContextsAllowed(remoteContextsAllowed.getValue());
+        if (statisticsInterval.getValue() == null || statisticsInterval.getValue() < 0) {
+            throw new DPUConfigException("Statistics interval must not be negative.");
+        }
+        conf.setStatisticsIntervalSeconds(statisticsInterval.getValue());
         conf.setFatalErrorHandling(comboFailPolicy.getValue().toString());
         conf.setOutputNaming(comboOutputGraph.getValue().toString());
         conf.setOutputSymbolicName(txtSymbolicName.getValue());
+        if (outputShards.getValue() == null || outputShards.getValue() < 1) {
+            throw new DPUConfigException("Number of output graphs must be a positive number.");
+        }
+        conf.setOutputShards(outputShards.getValue());
+        conf.setOutputMode(comboOutputMode.getValue().toString());
+        conf.setFileOutputFormat(comboFileOutputFormat.getValue().toString());
+        conf.setFileOutputCompressed(fileOutputCompressed.getValue());
+        if (fileOutputRollSize.getValue() == null || fileOutputRollSize.getValue() < 0) {
+            throw new DPUConfigException("Output file roll size must not be negative.");
+        }
+        conf.setFileOutputRollSizeMB(fileOutputRollSize.getValue());
         return conf;
     }
 
@@ -0,0 +1,152 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openrdf.model.Resource;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+import com.github.jsonldjava.core.DocumentLoader;
+import com.github.jsonldjava.core.JsonLdError;
+import com.github.jsonldjava.core.JsonLdOptions;
+import com.github.jsonldjava.core.JsonLdProcessor;
+import com.github.jsonldjava.sesame.SesameTripleCallback;
+
+/**
+ * Reference engine: the document is given a {@code @vocab} context and converted by
+ * jsonld-java. Supports everything JSON-LD does, at the cost of full expansion and
+ * node map generation.
+ *
+ * With a document loader the engine honours JSON-LD: a document with its own
+ * {@code @context} (or every document, for .jsonld input) is converted as it is, remote
+ * contexts are resolved by the loader. In a top-level array only the items with their
+ * own context are JSON-LD, the other items are plain records under the root node, the
+ * same as when the array is converted item by item.
+ */
+public class JsonLdConversionEngine implements ConversionEngine {
+
+    private static final String CONTEXT_KEY = "@context";
+
+    private final String vocab;
+
+    private final DocumentLoader documentLoader;
+
+    private final boolean jsonLdInput;
+
+    /**
+     * @param vocab
+     *        Base URI of the generated properties.
+     */
+    public JsonLdConversionEngine(String vocab) {
+        this(vocab, null, false);
+    }
+
+    /**
+     * @param vocab
+     *        Base URI of the generated properties.
+     * @param documentLoader
+     *        Resolves remote contexts, if null then an existing context of the document is
+     *        replaced by the vocabulary context.
+     * @param jsonLdInput
+     *        If true then every document is JSON-LD and converted as it is, otherwise only
+     *        documents with a context. Requires a document loader.
+     */
+    public JsonLdConversionEngine(String vocab, DocumentLoader documentLoader, boolean jsonLdInput) {
+        this.vocab = vocab;
+        this.documentLoader = documentLoader;
+        this.jsonLdInput = jsonLdInput && documentLoader != null;
+    }
+
+    @Override
+    public void convert(InputStream in, RDFHandler handler) throws IOException, RDFHandlerException, JsonLdError {
+        convert(ParseBuffers.readJson(in), null, handler);
+    }
+
+    /**
+     * SesameTripleCallback wraps exceptions of the handler (e.g. cancellation) into
+     * RuntimeException, unwrap them so callers see the original exception.
+     */
+    @Override
+    public void convert(Object json, Resource root, RDFHandler handler) throws RDFHandlerException, JsonLdError {
+        try {
+            parseJSON(handler, json, root);
+        } catch (RuntimeException ex) {
+            if (ex.getCause() instanceof RDFHandlerException) {
+                throw (RDFHandlerException) ex.getCause();
+            }
+            throw ex;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void parseJSON(RDFHandler handler, Object json, Resource root) throws JsonLdError {
+        SesameTripleCallback callback = new SesameTripleCallback(handler);
+        if (!jsonLdInput && documentLoader != null && json instanceof List && hasContext(json)) {
+            // Items keep their own context as siblings of the root node, contexts do not
+            // reach siblings.
+            List<Object> documents = new ArrayList<Object>();
+            List<Object> records = new ArrayList<Object>();
+            for (Object item : (List<Object>) json) {
+                if (hasContext(item)) {
+                    documents.add(item);
+                } else {
+                    records.add(item);
+                }
+            }
+            HashMap<String, Object> newJson = new HashMap<String, Object>();
+            newJson.put(DATASETS_KEY, records);
+            documents.add(0, newJson);
+            prepareRoot(newJson, false, root);
+            json = documents;
+        } else {
+            boolean jsonLd = jsonLdInput || (documentLoader != null && hasContext(json));
+            if (!jsonLd && json instanceof List) {
+                HashMap<String, Object> newJson = new HashMap<String, Object>();
+                newJson.put(DATASETS_KEY, json);
+                json = newJson;
+            }
+            if (json instanceof Map) {
+                prepareRoot((Map<String, Object>) json, jsonLd, root);
+            }
+        }
+        if (documentLoader == null) {
+            JsonLdProcessor.toRDF(json, callback);
+        } else {
+            JsonLdOptions options = new JsonLdOptions();
+            options.setDocumentLoader(documentLoader);
+            JsonLdProcessor.toRDF(json, callback, options);
+        }
+    }
+
+    private void prepareRoot(Map<String, Object> json, boolean jsonLd, Resource root) {
+        if (!jsonLd) {
+            HashMap<String, Object> hm = new HashMap<String, Object>();
+            hm.put("@vocab", vocab);
+            json.put(CONTEXT_KEY, hm);
+        }
+        if (root != null) {
+            json.put("@id", root.stringValue());
+        }
+    }
+
+    /**
+     * @return True if the document, or an item of a top-level array, has its own context.
+     */
+    private static boolean hasContext(Object json) {
+        if (json instanceof Map) {
+            return ((Map<?, ?>) json).containsKey(CONTEXT_KEY);
+        } else if (json instanceof List) {
+            for (Object item : (List<?>) json) {
+                if (item instanceof Map && ((Map<?, ?>) item).containsKey(CONTEXT_KEY)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
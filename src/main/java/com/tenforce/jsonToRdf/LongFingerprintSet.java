@@ -0,0 +1,171 @@
+package com.tenforce.jsonToRdf;
+
+import java.util.Arrays;
+
+/**
+ * Bounded open-addressing hash set of primitive long values.
+ *
+ * Used to remember statement fingerprints without boxing every value into a
+ * {@link Long}. Once the configured capacity is reached no new values are
+ * accepted, {@link #add(long)} then reports every unknown value as new.
+ *
+ * Not thread-safe.
+ */
+public class LongFingerprintSet {
+
+    /**
+     * Marks an empty slot; a fingerprint equal to this value is stored in {@link #containsZero}.
+     */
+    private static final long EMPTY = 0L;
+
+    private static final int INITIAL_TABLE_SIZE = 1024;
+
+    private long[] table;
+
+    private int mask;
+
+    private final int capacity;
+
+    private final int initialTableSize;
+
+    private int size = 0;
+
+    private boolean containsZero = false;
+
+    /**
+     * @param capacity
+     *        Maximum number of values held by the set, the table grows on demand up to it.
+     */
+    public LongFingerprintSet(int capacity) {
+        this(capacity, INITIAL_TABLE_SIZE);
+    }
+
+    /**
+     * @param capacity
+     *        Maximum number of values held by the set, the table grows on demand up to it.
+     * @param initialTableSize
+     *        Size of the table to start with, a power of two.
+     */
+    public LongFingerprintSet(int capacity, int initialTableSize) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        if (initialTableSize < 2 || Integer.bitCount(initialTableSize) != 1) {
+            throw new IllegalArgumentException("Table size must be a power of two: " + initialTableSize);
+        }
+        this.capacity = Math.min(capacity, 1 << 29);
+        this.initialTableSize = Math.min(initialTableSize, tableSizeFor(this.capacity));
+        this.table = new long[this.initialTableSize];
+        this.mask = table.length - 1;
+    }
+
+    /**
+     * @param value
+     * @return True if the value was not in the set before, false if it was already present.
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            if (containsZero) {
+                return false;
+            }
+            if (isFull()) {
+                return true;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int index = slot(value);
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        if (!isFull()) {
+            table[index] = value;
+            size++;
+            // Keep load factor at most 0.5 so probe sequences stay short.
+            if (size * 2 > table.length) {
+                resize(table.length * 2);
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(long value) {
+        if (value == EMPTY) {
+            return containsZero;
+        }
+        int index = slot(value);
+        while (table[index] != EMPTY) {
+            if (table[index] == value) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Adds all values from given set into this set, as far as the capacity allows.
+     *
+     * @param other
+     */
+    public void addAll(LongFingerprintSet other) {
+        if (other.containsZero) {
+            add(EMPTY);
+        }
+        for (long value : other.table) {
+            if (value != EMPTY) {
+                add(value);
+            }
+        }
+    }
+
+    public void clear() {
+        if (table.length > initialTableSize) {
+            table = new long[initialTableSize];
+            mask = table.length - 1;
+        } else {
+            Arrays.fill(table, EMPTY);
+        }
+        containsZero = false;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return True if the set has reached its capacity and no longer accepts new values.
+     */
+    public boolean isFull() {
+        return size >= capacity;
+    }
+
+    private void resize(int newSize) {
+        long[] oldTable = table;
+        table = new long[newSize];
+        mask = newSize - 1;
+        for (long value : oldTable) {
+            if (value != EMPTY) {
+                int index = slot(value);
+                while (table[index] != EMPTY) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = value;
+            }
+        }
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) << 1;
+    }
+
+    private int slot(long value) {
+        // Fingerprints are already well mixed, just fold the upper bits in.
+        return (int) (value ^ (value >>> 32)) & mask;
+    }
+}
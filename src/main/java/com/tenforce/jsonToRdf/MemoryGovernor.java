@@ -0,0 +1,156 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Estimates heap needed to convert a file as a single in-memory document and compares
+ * it with the heap budget of the execution.
+ *
+ * A JSON document parsed into Java maps and lists and then expanded by jsonld-java
+ * takes many times its serialized size, the estimate uses {@link #EXPANSION_FACTOR}.
+ * For compressed input the uncompressed size is taken from the gzip trailer or the zip
+ * central directory where available, otherwise {@link #DEFAULT_COMPRESSION_RATIO} is assumed.
+ */
+public class MemoryGovernor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MemoryGovernor.class);
+
+    /**
+     * Heap used per byte of JSON: parsed tree, expanded copy, node map and RDF dataset.
+     */
+    public static final long EXPANSION_FACTOR = 25L;
+
+    public static final long DEFAULT_COMPRESSION_RATIO = 10L;
+
+    private final int heapBudgetPercent;
+
+    /**
+     * @param heapBudgetPercent
+     *        Share of the currently available heap a single document may use, 0 disables the check.
+     */
+    public MemoryGovernor(int heapBudgetPercent) {
+        this.heapBudgetPercent = heapBudgetPercent;
+    }
+
+    /**
+     * @param file
+     * @return True if the file is not expected to fit into the heap budget as a single document.
+     * @throws IOException
+     */
+    public boolean exceedsBudget(File file) throws IOException {
+        if (heapBudgetPercent <= 0) {
+            return false;
+        }
+        long required = estimateRequiredHeap(file);
+        long budget = getHeapBudget();
+        if (required > budget) {
+            LOG.info("File '{}' needs about {} MB of heap, budget is {} MB", file.getName(),
+                    required / (1024 * 1024), budget / (1024 * 1024));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Heap available to a single document.
+     */
+    public long getHeapBudget() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        long available = runtime.maxMemory() - used;
+        return available / 100L * heapBudgetPercent;
+    }
+
+    /**
+     * @param file
+     * @return Estimated heap needed to convert the largest document of the file in memory.
+     * @throws IOException
+     */
+    public long estimateRequiredHeap(File file) throws IOException {
+        return estimateDocumentSize(file) * EXPANSION_FACTOR;
+    }
+
+    /**
+     * @param file
+     * @return Estimated uncompressed size of the largest document in the file.
+     * @throws IOException
+     */
+    static long estimateDocumentSize(File file) throws IOException {
+        return estimateUncompressedSize(file, false);
+    }
+
+    /**
+     * @param file
+     * @return Estimated uncompressed size of all documents in the file together.
+     * @throws IOException
+     */
+    static long estimateTotalSize(File file) throws IOException {
+        return estimateUncompressedSize(file, true);
+    }
+
+    /**
+     * @param total
+     *        If true then sizes of zip entries are summed up, otherwise the largest one is taken.
+     */
+    private static long estimateUncompressedSize(File file, boolean total) throws IOException {
+        final long length = file.length();
+        final byte[] magic = new byte[4];
+        int read;
+        try (InputStream in = new FileInputStream(file)) {
+            read = in.read(magic);
+        }
+        if (read >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b) {
+            return estimateGZipSize(file, length);
+        } else if (read == 4 && magic[0] == 'P' && magic[1] == 'K' && magic[2] == 3 && magic[3] == 4) {
+            return estimateZipSize(file, length, total);
+        }
+        return length;
+    }
+
+    private static long estimateGZipSize(File file, long length) throws IOException {
+        if (length < 8) {
+            return length;
+        }
+        // Last four bytes of a gzip member hold the uncompressed size modulo 2^32 (little endian).
+        long size;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(length - 4);
+            size = (raf.read() & 0xffL) | (raf.read() & 0xffL) << 8 | (raf.read() & 0xffL) << 16
+                    | (raf.read() & 0xffL) << 24;
+        }
+        if (size < length) {
+            // Wrapped around (more than 4 GB uncompressed) or several members.
+            return length * DEFAULT_COMPRESSION_RATIO;
+        }
+        return size;
+    }
+
+    private static long estimateZipSize(File file, long length, boolean total) throws IOException {
+        long largest = 0L;
+        long sum = 0L;
+        try (ZipFile zipFile = new ZipFile(file)) {
+            Enumeration<? extends ZipEntry> entries = zipFile.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                long size = entry.getSize();
+                if (size < 0) {
+                    size = entry.getCompressedSize() < 0 ? length * DEFAULT_COMPRESSION_RATIO
+                            : entry.getCompressedSize() * DEFAULT_COMPRESSION_RATIO;
+                }
+                largest = Math.max(largest, size);
+                sum += size;
+            }
+        }
+        return total ? sum : largest;
+    }
+}
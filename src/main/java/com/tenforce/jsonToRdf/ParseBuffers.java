@@ -0,0 +1,136 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * What parsing a document allocates, reused across the documents of a run.
+ *
+ * <ul>
+ * <li>A single {@link ObjectMapper} reads all documents from bytes. Jackson keeps the
+ * parser buffers of every thread for the next parser and shares the canonical field
+ * names, so repeated keys are not allocated again for each document. Unlike
+ * {@link com.github.jsonldjava.utils.JsonUtils} no Reader (and its buffers) is created,
+ * the encoding is detected by Jackson.</li>
+ * <li>Input buffers are pooled per thread, nested documents (a gzip file in a zip
+ * archive) each take their own buffer.</li>
+ * </ul>
+ *
+ * Parsers do not close their input, streams are closed by whoever opened them.
+ */
+public final class ParseBuffers {
+
+    /**
+     * Size of a pooled input buffer.
+     */
+    public static final int BUFFER_SIZE = 16 * 1024;
+
+    /**
+     * Maximum number of buffers kept by a thread.
+     */
+    private static final int MAX_POOLED = 4;
+
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+
+    static {
+        JsonFactory factory = JSON_MAPPER.getFactory();
+        // Keys are canonicalized, but interning them would only fill the JVM string table.
+        factory.disable(JsonFactory.Feature.INTERN_FIELD_NAMES);
+        factory.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+    }
+
+    private static final ThreadLocal<Deque<byte[]>> POOL = new ThreadLocal<Deque<byte[]>>() {
+
+        @Override
+        protected Deque<byte[]> initialValue() {
+            return new ArrayDeque<>(MAX_POOLED);
+        }
+    };
+
+    private ParseBuffers() {
+    }
+
+    /**
+     * Read a whole JSON document.
+     *
+     * @param in
+     * @return Map, List, String, Number, Boolean or null.
+     * @throws IOException
+     */
+    public static Object readJson(InputStream in) throws IOException {
+        JsonParser parser = JSON_MAPPER.getFactory().createParser(in);
+        try {
+            if (parser.nextToken() == null) {
+                throw new JsonParseException("document doesn't start with a valid json element : null",
+                        parser.getCurrentLocation());
+            }
+            return readValue(parser);
+        } finally {
+            // Returns the parser buffers for the next document.
+            parser.close();
+        }
+    }
+
+    /**
+     * @param parser
+     *        Parser positioned at the first token of the value.
+     * @return Map, List, String, Number, Boolean or null.
+     * @throws IOException
+     */
+    public static Object readValue(JsonParser parser) throws IOException {
+        return JSON_MAPPER.readValue(parser, Object.class);
+    }
+
+    /**
+     * @param in
+     * @return Parser of given stream that does not close it.
+     * @throws IOException
+     */
+    public static JsonParser createParser(InputStream in) throws IOException {
+        return JSON_MAPPER.getFactory().createParser(in);
+    }
+
+    /**
+     * Take an input buffer of the current thread, it must be given back by
+     * {@link #release(byte[])} by the same thread once the stream using it is no longer read.
+     *
+     * @return Buffer of {@link #BUFFER_SIZE} bytes.
+     */
+    public static byte[] acquire() {
+        byte[] buffer = POOL.get().pollFirst();
+        return buffer != null ? buffer : new byte[BUFFER_SIZE];
+    }
+
+    public static void release(byte[] buffer) {
+        Deque<byte[]> pool = POOL.get();
+        if (pool.size() < MAX_POOLED) {
+            pool.addFirst(buffer);
+        }
+    }
+
+    /**
+     * @param in
+     * @param buffer
+     *        Acquired buffer.
+     * @return Buffered stream with mark support reading through given buffer.
+     */
+    public static InputStream buffered(InputStream in, byte[] buffer) {
+        return new PooledBufferedInputStream(in, buffer);
+    }
+
+    private static class PooledBufferedInputStream extends BufferedInputStream {
+
+        PooledBufferedInputStream(InputStream in, byte[] buffer) {
+            super(in, 1);
+            this.buf = buffer;
+        }
+    }
+}
@@ -16,17 +16,11 @@
  */
 package com.tenforce.jsonToRdf;
 
-import com.github.jsonldjava.core.JsonLdProcessor;
 import com.github.jsonldjava.core.JsonLdError;
-import com.github.jsonldjava.utils.*;
-import com.github.jsonldjava.sesame.*;
 
 import info.aduna.io.GZipUtil;
 import info.aduna.io.ZipUtil;
 
-import java.util.*;
-
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilterInputStream;
@@ -43,12 +37,15 @@ import java.util.zip.ZipInputStream;
 
 import org.openrdf.model.ValueFactory;
 import org.openrdf.rio.*;
-import org.openrdf.rio.helpers.ParseErrorLogger;
 
 
 
 /**
- * Handles common I/O to retrieve and parse RDF.
+ * Handles common I/O to retrieve and parse RDF, JSON documents are converted by a
+ * {@link ConversionEngine}.
+ * 
+ * Instances hold no per-document state and can be shared by any number of threads,
+ * all state of a conversion lives on the stack of the calling thread.
  * 
  * @author James Leigh
  */
@@ -58,7 +55,12 @@ public class ParseErrorListenerEnabledRDFLoader {
 
     private final ValueFactory vf;
 
-    private final String vocab;
+    /**
+     * Converts every JSON document of the input.
+     */
+    private final ConversionEngine engine;
+
+    private final ConversionEngine jsonLdEngine;
 
     /**
      * @param config
@@ -66,9 +68,47 @@ public class ParseErrorListenerEnabledRDFLoader {
      * @param vocab
      */
     public ParseErrorListenerEnabledRDFLoader(ParserConfig config, ValueFactory vf, String vocab) {
+        this(config, vf, vocab, false);
+    }
+
+    /**
+     * @param config
+     * @param vf
+     * @param vocab
+     * @param streamRecords
+     *        If true then a top-level array is read and converted item by item, so only one
+     *        item is held in memory. Documents that are not a top-level array are rejected.
+     */
+    public ParseErrorListenerEnabledRDFLoader(ParserConfig config, ValueFactory vf, String vocab, boolean streamRecords) {
+        this(config, vf, streamRecords ? new StreamingConversionEngine(new JsonLdConversionEngine(vocab), vf, true)
+                : new JsonLdConversionEngine(vocab));
+    }
+
+    /**
+     * @param config
+     * @param vf
+     * @param engine
+     *        Converts JSON documents into RDF.
+     */
+    public ParseErrorListenerEnabledRDFLoader(ParserConfig config, ValueFactory vf, ConversionEngine engine) {
+        this(config, vf, engine, null);
+    }
+
+    /**
+     * @param config
+     * @param vf
+     * @param engine
+     *        Converts JSON documents into RDF.
+     * @param jsonLdEngine
+     *        Converts documents in {@link RDFFormat#JSONLD} format, if null then the engine
+     *        converts them as well.
+     */
+    public ParseErrorListenerEnabledRDFLoader(ParserConfig config, ValueFactory vf, ConversionEngine engine,
+            ConversionEngine jsonLdEngine) {
         this.config = config;
         this.vf = vf;
-	this.vocab = vocab;
+        this.engine = engine;
+        this.jsonLdEngine = jsonLdEngine;
     }
 
     /**
@@ -213,18 +253,28 @@ public class ParseErrorListenerEnabledRDFLoader {
     public void load(InputStream in, String baseURI, RDFFormat dataFormat, RDFHandler rdfHandler, ParseErrorListener parseErrorListener)
         throws IOException, RDFParseException, RDFHandlerException, JsonLdError
     {
+        // Buffers are reused by the next file (or zip entry) loaded by this thread.
+        byte[] buffer = null;
         if (!in.markSupported()) {
-            in = new BufferedInputStream(in, 1024);
+            buffer = ParseBuffers.acquire();
+            in = ParseBuffers.buffered(in, buffer);
         }
 
-        if (ZipUtil.isZipStream(in)) {
-            loadZip(in, baseURI, dataFormat, rdfHandler, parseErrorListener);
-        }
-        else if (GZipUtil.isGZipStream(in)) {
-            load(new GZIPInputStream(in), baseURI, dataFormat, rdfHandler, parseErrorListener);
+        try {
+            if (ZipUtil.isZipStream(in)) {
+                loadZip(in, baseURI, dataFormat, rdfHandler, parseErrorListener);
+            }
+            else if (GZipUtil.isGZipStream(in)) {
+                load(new GZIPInputStream(in), baseURI, dataFormat, rdfHandler, parseErrorListener);
+            }
+            else {
+                loadInputStreamOrReader(in, baseURI, dataFormat, rdfHandler, parseErrorListener);
+            }
         }
-        else {
-            loadInputStreamOrReader(in, baseURI, dataFormat, rdfHandler, parseErrorListener);
+        finally {
+            if (buffer != null) {
+                ParseBuffers.release(buffer);
+            }
         }
     }
 
@@ -299,25 +349,6 @@ public class ParseErrorListenerEnabledRDFLoader {
     }
 
 
-   private void parseJSON(RDFHandler handler, Object json) throws JsonLdError {
-       SesameTripleCallback callback = new SesameTripleCallback(handler);
-       //JsonLdOptions options = new JsonLdOptions("http://data.opendatasupport.eu/raw/");
-        if (json instanceof List) {
-            HashMap<String,Object> newJson = new HashMap<String,Object>();
-            newJson.put("datasets",json);
-            json = newJson;
-        }
-	if (json instanceof Map) {
-	    HashMap<String,Object> hm = new HashMap<String,Object>();
-	    hm.put("@vocab", vocab); 
-//            ((Map) json).put("@id","joost");
-            ((Map) json).put("@context", hm); //"{\"@vocab\": \"http://testruimte/\"}");//getConfig().getJsonContext().toString());
-//            ((Map) json).put("@type", "Product");
-	}
-        JsonLdProcessor.toRDF(json, callback);
-    }
-
-
     /**
      * Adds the data that can be read from the supplied InputStream or Reader to
      * this repository.
@@ -340,8 +371,10 @@ public class ParseErrorListenerEnabledRDFLoader {
             RDFHandler rdfHandler, ParseErrorListener parseErrorListener)
         throws IOException, RDFParseException, RDFHandlerException, JsonLdError
     {
-	Object jsonObject = JsonUtils.fromInputStream((InputStream) inputStreamOrReader);
-	parseJSON(rdfHandler, jsonObject);
-	return;
-     }
+        if (jsonLdEngine != null && RDFFormat.JSONLD.equals(dataFormat)) {
+            jsonLdEngine.convert((InputStream) inputStreamOrReader, rdfHandler);
+        } else {
+            engine.convert((InputStream) inputStreamOrReader, rdfHandler);
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Reports bytes read to a {@link ConversionProgress} and aborts reading with an
+ * {@link InterruptedIOException} once the execution has been cancelled.
+ */
+public class ProgressInputStream extends FilterInputStream {
+
+    private final ConversionProgress progress;
+
+    public ProgressInputStream(InputStream in, ConversionProgress progress) {
+        super(in);
+        this.progress = progress;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value != -1) {
+            count(1);
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        // Re-read bytes would be counted twice.
+        return false;
+    }
+
+    private void count(long bytes) throws IOException {
+        if (!progress.bytesRead(bytes)) {
+            throw new InterruptedIOException("Cancelled by user");
+        }
+    }
+}
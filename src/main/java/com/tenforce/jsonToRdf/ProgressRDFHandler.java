@@ -0,0 +1,29 @@
+package com.tenforce.jsonToRdf;
+
+import org.openrdf.model.Statement;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+
+/**
+ * Counts statements into a {@link ConversionProgress} and stops the conversion once
+ * the execution has been cancelled. Used where no {@link CancellableCommitSizeInserter}
+ * is involved.
+ */
+public class ProgressRDFHandler extends RDFHandlerWrapper {
+
+    private final ConversionProgress progress;
+
+    public ProgressRDFHandler(RDFHandler handler, ConversionProgress progress) {
+        super(handler);
+        this.progress = progress;
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        if (!progress.statementHandled()) {
+            throw new RDFHandlerException("Cancelled by user");
+        }
+        super.handleStatement(st);
+    }
+}
@@ -0,0 +1,307 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.RDFWriter;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.RDFHandlerBase;
+
+/**
+ * Serializes statements of one or more documents straight into (optionally gzip
+ * compressed) files, bypassing any repository.
+ *
+ * Documents are never split between files: a new file is started before a document
+ * once the current file has reached the roll size. Blank node labels are prefixed
+ * with the document scope and the number of the document within it (e.g. a zip entry),
+ * so documents written into the same file do not share blank nodes.
+ *
+ * Every document is written by a writer of its own straight into the file, a compressed
+ * file gets a gzip member per document. The file offset where a document starts is
+ * remembered, so a document that fails half way is cut off the file and leaves nothing
+ * behind. Only formats whose documents can be concatenated are supported.
+ *
+ * Not thread-safe.
+ */
+public class RDFFileOutput {
+
+    /**
+     * Creates files for the output.
+     */
+    public interface FileFactory {
+
+        /**
+         * @param part
+         *        Sequence number of the file, starting with 0.
+         * @param extension
+         *        File extension including the leading dot.
+         * @return File to write into.
+         * @throws Exception
+         */
+        File createFile(int part, String extension) throws Exception;
+    }
+
+    /**
+     * Formats where a file of several documents is a valid document too.
+     */
+    public static final List<RDFFormat> FORMATS = Arrays.asList(RDFFormat.NTRIPLES, RDFFormat.NQUADS,
+            RDFFormat.TURTLE, RDFFormat.TRIG);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileFactory fileFactory;
+
+    private final RDFFormat format;
+
+    private final boolean compress;
+
+    private final long rollSize;
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    private FileOutputStream fileOut = null;
+
+    /**
+     * Document being written into the current file, null if there is none.
+     */
+    private Document current = null;
+
+    private int part = 0;
+
+    /**
+     * Set if a discarded document could not be cut off the file, nothing more is written.
+     */
+    private IOException failure = null;
+
+    /**
+     * @param fileFactory
+     * @param format
+     *        Serialization format, one of {@link #FORMATS}.
+     * @param compress
+     *        If true then files are gzip compressed.
+     * @param rollSize
+     *        Start a new file once the current one has at least this many bytes, 0 to write a
+     *        single file.
+     */
+    public RDFFileOutput(FileFactory fileFactory, RDFFormat format, boolean compress, long rollSize) {
+        if (!FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Documents can't be concatenated in format: " + format);
+        }
+        this.fileFactory = fileFactory;
+        this.format = format;
+        this.compress = compress;
+        this.rollSize = rollSize;
+    }
+
+    /**
+     * @param documentScope
+     *        Identification of the document, used to keep blank nodes apart.
+     * @param context
+     *        Context of the statements, used only if the format supports contexts, may be null.
+     * @return Document that receives statements of a single input, it must be either
+     *         committed or discarded.
+     */
+    public Document startDocument(long documentScope, Resource context) {
+        return new Document("d" + documentScope + "x", format.supportsContexts() ? context : null);
+    }
+
+    /**
+     * Finish the current file.
+     *
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        if (current != null) {
+            current.discard();
+        }
+        if (fileOut == null) {
+            return;
+        }
+        try {
+            fileOut.close();
+        } finally {
+            fileOut = null;
+        }
+    }
+
+    private void open() throws IOException {
+        String extension = "." + format.getDefaultFileExtension() + (compress ? ".gz" : "");
+        File file;
+        try {
+            file = fileFactory.createFile(part++, extension);
+        } catch (IOException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IOException("Can't create output file.", ex);
+        }
+        fileOut = new FileOutputStream(file);
+    }
+
+    /**
+     * Statements of a single input, written into the output as they come.
+     */
+    public class Document extends RDFHandlerBase {
+
+        private final String blankNodePrefix;
+
+        private final Resource context;
+
+        /**
+         * Offset in the file where the document starts.
+         */
+        private long start;
+
+        private OutputStream stream = null;
+
+        private RDFWriter writer = null;
+
+        private boolean finished = false;
+
+        /**
+         * Number of the document of the input, counted by its start.
+         */
+        private long document = 0L;
+
+        Document(String blankNodePrefix, Resource context) {
+            this.blankNodePrefix = blankNodePrefix;
+            this.context = context;
+        }
+
+        @Override
+        public void startRDF() throws RDFHandlerException {
+            // Labels restart in every document, e.g. jsonld-java starts at _:b0 each time.
+            document++;
+        }
+
+        @Override
+        public void handleStatement(Statement st) throws RDFHandlerException {
+            if (finished) {
+                throw new RDFHandlerException("Document has already been finished.");
+            }
+            if (writer == null) {
+                try {
+                    begin();
+                } catch (IOException ex) {
+                    throw new RDFHandlerException("Can't write output file.", ex);
+                }
+            }
+            Resource subject = (Resource) scope(st.getSubject());
+            Value object = scope(st.getObject());
+            if (context != null) {
+                writer.handleStatement(vf.createStatement(subject, st.getPredicate(), object, context));
+            } else {
+                writer.handleStatement(vf.createStatement(subject, st.getPredicate(), object));
+            }
+        }
+
+        /**
+         * Finish the statements in the output.
+         *
+         * @throws IOException
+         * @throws RDFHandlerException
+         */
+        public void commit() throws IOException, RDFHandlerException {
+            if (finished) {
+                throw new IllegalStateException("Document has already been finished.");
+            }
+            if (writer == null) {
+                begin();
+            }
+            writer.endRDF();
+            // Finishes the gzip member, the file stays open for the next document.
+            stream.close();
+            finished = true;
+            writer = null;
+            stream = null;
+            current = null;
+        }
+
+        /**
+         * Drop the statements, the file is cut back to where the document started. Does
+         * nothing once the document has been committed.
+         */
+        public void discard() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (writer == null) {
+                return;
+            }
+            writer = null;
+            current = null;
+            try {
+                stream.close();
+            } catch (IOException ex) {
+                // The document is cut off anyway.
+            }
+            stream = null;
+            try {
+                fileOut.getChannel().truncate(start);
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }
+
+        private void begin() throws IOException, RDFHandlerException {
+            if (current != null) {
+                throw new IllegalStateException("Another document is being written.");
+            }
+            if (failure != null) {
+                throw new IOException("Can't remove a discarded document from the output file.", failure);
+            }
+            if (fileOut != null && rollSize > 0 && fileOut.getChannel().position() >= rollSize) {
+                close();
+            }
+            if (fileOut == null) {
+                open();
+            }
+            FileChannel channel = fileOut.getChannel();
+            start = channel.position();
+            OutputStream file = new FilterOutputStream(fileOut) {
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                }
+
+                @Override
+                public void close() throws IOException {
+                    // Only the document is finished, the file is closed by the output.
+                    flush();
+                }
+            };
+            if (compress) {
+                stream = new BufferedOutputStream(new GZIPOutputStream(file, BUFFER_SIZE), BUFFER_SIZE);
+            } else {
+                stream = new BufferedOutputStream(file, BUFFER_SIZE);
+            }
+            current = this;
+            writer = Rio.createWriter(format, stream);
+            writer.startRDF();
+        }
+
+        private Value scope(Value value) {
+            if (value instanceof BNode) {
+                return vf.createBNode(blankNodePrefix + document + "x" + ((BNode) value).getID());
+            }
+            return value;
+        }
+    }
+}
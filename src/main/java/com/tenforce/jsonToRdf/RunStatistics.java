@@ -0,0 +1,317 @@
+package com.tenforce.jsonToRdf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.vocabulary.RDF;
+import org.openrdf.model.vocabulary.RDFS;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Statistics of a whole execution, shared by all threads: statements, bytes, commits,
+ * a commit latency histogram and the duration of every file.
+ *
+ * Counters are only touched in batches (per commit, per progress check and per file),
+ * never per statement, so updates from several threads do not contend on the hot path.
+ * The histogram has a bucket per power of two microseconds.
+ *
+ * While the execution runs the statistics are logged periodically as a single line of
+ * {@code key=value} pairs, at the end they are published as RDF.
+ */
+public class RunStatistics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RunStatistics.class);
+
+    /**
+     * Namespace of the properties used to describe the statistics in the metadata.
+     */
+    public static final String NAMESPACE = "http://unifiedviews.eu/ontology/t-jsonToRdf/statistics/";
+
+    /**
+     * Number of commit latency buckets, the last one also holds longer commits (over 9 minutes).
+     */
+    public static final int LATENCY_BUCKETS = 30;
+
+    /**
+     * Duration of a converted file.
+     */
+    public static class FileDuration {
+
+        private final String name;
+
+        private final long bytes;
+
+        private final long statements;
+
+        private final long duration;
+
+        FileDuration(String name, long bytes, long statements, long duration) {
+            this.name = name;
+            this.bytes = bytes;
+            this.statements = statements;
+            this.duration = duration;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getStatements() {
+            return statements;
+        }
+
+        /**
+         * @return Conversion time in milliseconds.
+         */
+        public long getDuration() {
+            return duration;
+        }
+    }
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final AtomicLong statements = new AtomicLong();
+
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final AtomicLong commits = new AtomicLong();
+
+    private final AtomicLong committedStatements = new AtomicLong();
+
+    private final AtomicLong commitNanos = new AtomicLong();
+
+    private final AtomicLongArray commitLatency = new AtomicLongArray(LATENCY_BUCKETS);
+
+    private final AtomicLong files = new AtomicLong();
+
+    private final AtomicLong skippedFiles = new AtomicLong();
+
+    private final Queue<FileDuration> fileDurations = new ConcurrentLinkedQueue<>();
+
+    private ScheduledExecutorService reporter = null;
+
+    /**
+     * @param count
+     *        Number of statements produced since the last call.
+     */
+    public void statementsProduced(long count) {
+        statements.addAndGet(count);
+    }
+
+    /**
+     * @param count
+     *        Number of bytes read since the last call.
+     */
+    public void bytesRead(long count) {
+        bytes.addAndGet(count);
+    }
+
+    /**
+     * @param count
+     *        Number of statements in the transaction.
+     * @param nanos
+     *        Duration of the commit.
+     */
+    public void committed(long count, long nanos) {
+        commits.incrementAndGet();
+        committedStatements.addAndGet(count);
+        commitNanos.addAndGet(nanos);
+        commitLatency.incrementAndGet(latencyBucket(nanos / 1000L));
+    }
+
+    public void fileFinished(String name, long fileBytes, long fileStatements, long duration) {
+        files.incrementAndGet();
+        fileDurations.add(new FileDuration(name, fileBytes, fileStatements, duration));
+    }
+
+    public void fileSkipped() {
+        skippedFiles.incrementAndGet();
+    }
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getCommits() {
+        return commits.get();
+    }
+
+    public long getCommittedStatements() {
+        return committedStatements.get();
+    }
+
+    public long getFiles() {
+        return files.get();
+    }
+
+    public long getSkippedFiles() {
+        return skippedFiles.get();
+    }
+
+    public List<FileDuration> getFileDurations() {
+        return new ArrayList<>(fileDurations);
+    }
+
+    /**
+     * @return Milliseconds since the statistics were created.
+     */
+    public long getElapsed() {
+        return Math.max(1L, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * @param quantile
+     *        Between 0 and 1.
+     * @return Upper bound in microseconds of the bucket with given commit latency quantile,
+     *         0 if nothing has been committed.
+     */
+    public long getCommitLatency(double quantile) {
+        long[] counts = new long[LATENCY_BUCKETS];
+        long total = 0L;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            counts[i] = commitLatency.get(i);
+            total += counts[i];
+        }
+        if (total == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(total * quantile));
+        long cumulative = 0L;
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return latencyUpperBound(i);
+            }
+        }
+        return latencyUpperBound(LATENCY_BUCKETS - 1);
+    }
+
+    /**
+     * @return Single line of {@code key=value} pairs, meant to be parsed by log collectors.
+     */
+    public String describe() {
+        long elapsed = getElapsed();
+        long commitCount = commits.get();
+        return String.format("elapsedMs=%d files=%d skippedFiles=%d statements=%d bytes=%d statementsPerSecond=%d "
+                + "bytesPerSecond=%d commits=%d committedStatements=%d commitMeanUs=%d commitP50Us=%d "
+                + "commitP99Us=%d", elapsed, files.get(), skippedFiles.get(), statements.get(), bytes.get(),
+                statements.get() * 1000L / elapsed, bytes.get() * 1000L / elapsed, commitCount,
+                committedStatements.get(), commitCount == 0L ? 0L : commitNanos.get() / 1000L / commitCount,
+                getCommitLatency(0.5), getCommitLatency(0.99));
+    }
+
+    /**
+     * Log the statistics every given number of seconds from a daemon thread, until
+     * {@link #stopReporting()} is called.
+     *
+     * @param intervalSeconds
+     *        If not positive then nothing is logged.
+     */
+    public synchronized void startReporting(long intervalSeconds) {
+        if (intervalSeconds <= 0 || reporter != null) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "run-statistics");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        reporter.scheduleAtFixedRate(new Runnable() {
+
+            @Override
+            public void run() {
+                LOG.info("Run statistics: {}", describe());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    /**
+     * @param vf
+     * @param graph
+     * @return Report of the statistics.
+     */
+    public List<Statement> toStatements(ValueFactory vf, Resource graph) {
+        List<Statement> report = new ArrayList<>();
+        BNode run = vf.createBNode();
+        report.add(vf.createStatement(run, RDF.TYPE, vf.createURI(NAMESPACE, "Run"), graph));
+        report.add(vf.createStatement(run, vf.createURI(NAMESPACE, "durationMillis"),
+                vf.createLiteral(getElapsed()), graph));
+        report.add(vf.createStatement(run, vf.createURI(NAMESPACE, "files"), vf.createLiteral(files.get()), graph));
+        report.add(vf.createStatement(run, vf.createURI(NAMESPACE, "skippedFiles"),
+                vf.createLiteral(skippedFiles.get()), graph));
+        report.add(vf.createStatement(run, vf.createURI(NAMESPACE, "statements"),
+                vf.createLiteral(statements.get()), graph));
+        report.add(vf.createStatement(run, vf.createURI(NAMESPACE, "bytes"), vf.createLiteral(bytes.get()), graph));
+        report.add(vf.createStatement(run, vf.createURI(NAMESPACE, "commits"), vf.createLiteral(commits.get()), graph));
+        report.add(vf.createStatement(run, vf.createURI(NAMESPACE, "committedStatements"),
+                vf.createLiteral(committedStatements.get()), graph));
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            long count = commitLatency.get(i);
+            if (count == 0L) {
+                continue;
+            }
+            BNode bucket = vf.createBNode();
+            report.add(vf.createStatement(run, vf.createURI(NAMESPACE, "commitLatency"), bucket, graph));
+            report.add(vf.createStatement(bucket, vf.createURI(NAMESPACE, "upperBoundMicros"),
+                    vf.createLiteral(latencyUpperBound(i)), graph));
+            report.add(vf.createStatement(bucket, vf.createURI(NAMESPACE, "count"), vf.createLiteral(count), graph));
+        }
+        for (FileDuration file : fileDurations) {
+            BNode node = vf.createBNode();
+            report.add(vf.createStatement(run, vf.createURI(NAMESPACE, "file"), node, graph));
+            report.add(vf.createStatement(node, RDFS.LABEL, vf.createLiteral(file.getName()), graph));
+            report.add(vf.createStatement(node, vf.createURI(NAMESPACE, "bytes"), vf.createLiteral(file.getBytes()),
+                    graph));
+            report.add(vf.createStatement(node, vf.createURI(NAMESPACE, "statements"),
+                    vf.createLiteral(file.getStatements()), graph));
+            report.add(vf.createStatement(node, vf.createURI(NAMESPACE, "durationMillis"),
+                    vf.createLiteral(file.getDuration()), graph));
+        }
+        return report;
+    }
+
+    /**
+     * @param micros
+     * @return Bucket i holds latencies below 2^(i+1) microseconds.
+     */
+    static int latencyBucket(long micros) {
+        int bucket = 63 - Long.numberOfLeadingZeros(Math.max(1L, micros));
+        return Math.min(bucket, LATENCY_BUCKETS - 1);
+    }
+
+    static long latencyUpperBound(int bucket) {
+        return 1L << (bucket + 1);
+    }
+}
@@ -0,0 +1,256 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.text.DecimalFormat;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openrdf.model.Resource;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+
+import com.github.jsonldjava.core.JsonLdError;
+
+/**
+ * Converts plain JSON directly into statements, without JSON-LD expansion. Produces
+ * the same graph as jsonld-java with a {@code @vocab} context: objects become blank
+ * nodes, keys become predicates, arrays are flattened, null is dropped and scalars
+ * become typed literals.
+ *
+ * Predicates are taken from the {@link InferredSchema}, keys not seen while sampling
+ * are expanded on the fly. Documents with JSON-LD keywords or compact IRIs as keys
+ * are handed to the fallback engine, see {@link #isSupported(Object)}.
+ *
+ * Immutable, all state of a conversion lives on the stack of the calling thread.
+ */
+public class SchemaConversionEngine implements ConversionEngine {
+
+    /**
+     * Key of the context in the root object, replaced by the vocabulary context.
+     */
+    private static final String CONTEXT_KEY = "@context";
+
+    /**
+     * Same patterns as used by jsonld-java for numbers.
+     */
+    private static final String DOUBLE_PATTERN = "0.0###############E0";
+
+    private static final String INTEGER_PATTERN = "0";
+
+    private final InferredSchema schema;
+
+    private final ValueFactory vf;
+
+    private final String vocab;
+
+    private final ConversionEngine fallback;
+
+    private final boolean contextsHonoured;
+
+    /**
+     * @param schema
+     * @param vf
+     * @param vocab
+     * @param fallback
+     *        Converts documents this engine does not support.
+     */
+    public SchemaConversionEngine(InferredSchema schema, ValueFactory vf, String vocab, ConversionEngine fallback) {
+        this(schema, vf, vocab, fallback, false);
+    }
+
+    /**
+     * @param schema
+     * @param vf
+     * @param vocab
+     * @param fallback
+     *        Converts documents this engine does not support.
+     * @param contextsHonoured
+     *        If true then documents with their own context are JSON-LD and handed to the fallback,
+     *        otherwise the context is ignored as it would be replaced.
+     */
+    public SchemaConversionEngine(InferredSchema schema, ValueFactory vf, String vocab, ConversionEngine fallback,
+            boolean contextsHonoured) {
+        this.schema = schema;
+        this.vf = vf;
+        this.vocab = vocab;
+        this.fallback = fallback;
+        this.contextsHonoured = contextsHonoured;
+    }
+
+    @Override
+    public void convert(InputStream in, RDFHandler handler) throws IOException, RDFHandlerException, JsonLdError {
+        convert(ParseBuffers.readJson(in), null, handler);
+    }
+
+    /**
+     * @param json
+     *        Parsed document.
+     * @return True if the document is converted by this engine and not by the fallback.
+     */
+    public boolean isSupported(Object json) {
+        if (vocab == null || vocab.indexOf(':') < 0) {
+            return false;
+        }
+        if (json instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) json).entrySet()) {
+                if (CONTEXT_KEY.equals(entry.getKey()) && !contextsHonoured) {
+                    continue;
+                }
+                if (!isPlainKey(entry.getKey()) || !isSupportedValue(entry.getValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return json instanceof List && isSupportedValue(json);
+    }
+
+    private static boolean isSupportedValue(Object value) {
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!isPlainKey(entry.getKey()) || !isSupportedValue(entry.getValue())) {
+                    return false;
+                }
+            }
+        } else if (value instanceof List) {
+            for (Object item : (List<?>) value) {
+                if (!isSupportedValue(item)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return True for keys that expand to vocab + key.
+     */
+    private static boolean isPlainKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+        String value = (String) key;
+        return !value.isEmpty() && value.charAt(0) != '@' && value.indexOf(':') < 0;
+    }
+
+    @Override
+    public void convert(Object json, Resource root, RDFHandler handler) throws RDFHandlerException, JsonLdError {
+        if (!isSupported(json)) {
+            fallback.convert(json, root, handler);
+            return;
+        }
+        handler.startRDF();
+        Conversion conversion = new Conversion(handler);
+        Resource subject = root == null ? conversion.nextBlankNode() : root;
+        if (json instanceof List) {
+            conversion.values(subject, predicate(DATASETS_KEY), json);
+        } else {
+            conversion.node(subject, (Map<?, ?>) json, true);
+        }
+        handler.endRDF();
+    }
+
+    private URI predicate(String key) {
+        URI predicate = schema.getPredicate(key);
+        if (predicate == null) {
+            predicate = vf.createURI(vocab + key);
+        }
+        return predicate;
+    }
+
+    /**
+     * State of a single conversion.
+     */
+    private class Conversion {
+
+        private final RDFHandler handler;
+
+        private long blankNodes = 0L;
+
+        private DecimalFormat doubleFormat = null;
+
+        private DecimalFormat integerFormat = null;
+
+        Conversion(RDFHandler handler) {
+            this.handler = handler;
+        }
+
+        Resource nextBlankNode() {
+            return vf.createBNode("b" + blankNodes++);
+        }
+
+        void node(Resource subject, Map<?, ?> json, boolean root) throws RDFHandlerException {
+            for (Map.Entry<?, ?> entry : json.entrySet()) {
+                if (root && CONTEXT_KEY.equals(entry.getKey())) {
+                    continue;
+                }
+                values(subject, predicate((String) entry.getKey()), entry.getValue());
+            }
+        }
+
+        void values(Resource subject, URI predicate, Object value) throws RDFHandlerException {
+            if (value instanceof List) {
+                // jsonld-java keeps a value only once per subject and predicate.
+                Set<Value> seen = new HashSet<>();
+                items(subject, predicate, (List<?>) value, seen);
+            } else {
+                value(subject, predicate, value, null);
+            }
+        }
+
+        private void items(Resource subject, URI predicate, List<?> items, Set<Value> seen) throws RDFHandlerException {
+            for (Object item : items) {
+                if (item instanceof List) {
+                    items(subject, predicate, (List<?>) item, seen);
+                } else {
+                    value(subject, predicate, item, seen);
+                }
+            }
+        }
+
+        private void value(Resource subject, URI predicate, Object value, Set<Value> seen) throws RDFHandlerException {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof Map) {
+                Resource object = nextBlankNode();
+                handler.handleStatement(vf.createStatement(subject, predicate, object));
+                node(object, (Map<?, ?>) value, false);
+                return;
+            }
+            Value object = literal(value);
+            if (seen == null || seen.add(object)) {
+                handler.handleStatement(vf.createStatement(subject, predicate, object));
+            }
+        }
+
+        private Value literal(Object value) {
+            if (value instanceof String) {
+                return vf.createLiteral((String) value, XMLSchema.STRING);
+            } else if (value instanceof Boolean) {
+                return vf.createLiteral(value.toString(), XMLSchema.BOOLEAN);
+            } else if (value instanceof Double || value instanceof Float) {
+                if (doubleFormat == null) {
+                    doubleFormat = new DecimalFormat(DOUBLE_PATTERN);
+                }
+                return vf.createLiteral(doubleFormat.format(value), XMLSchema.DOUBLE);
+            } else if (value instanceof Integer || value instanceof Long || value instanceof BigInteger) {
+                return vf.createLiteral(value.toString(), XMLSchema.INTEGER);
+            } else if (value instanceof Number) {
+                if (integerFormat == null) {
+                    integerFormat = new DecimalFormat(INTEGER_PATTERN);
+                }
+                return vf.createLiteral(integerFormat.format(value), XMLSchema.INTEGER);
+            }
+            return vf.createLiteral(value.toString(), XMLSchema.STRING);
+        }
+    }
+}
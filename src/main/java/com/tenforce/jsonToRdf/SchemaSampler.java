@@ -0,0 +1,194 @@
+package com.tenforce.jsonToRdf;
+
+import info.aduna.io.GZipUtil;
+import info.aduna.io.ZipUtil;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.openrdf.model.ValueFactory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Builds an {@link InferredSchema} from the first records of the input. The JSON is
+ * only tokenized, no document is held in memory, so sampling a large file is cheap.
+ *
+ * A record is an item of a top-level array, or the whole document if it is not an
+ * array. Keys that are not expanded against the vocabulary (JSON-LD keywords, compact
+ * IRIs) are not part of the table.
+ *
+ * Not thread-safe.
+ */
+public class SchemaSampler {
+
+    private final ValueFactory vf;
+
+    private final String vocab;
+
+    private final long maxRecords;
+
+    private final Map<String, Counter> keys = new HashMap<>();
+
+    private long records = 0L;
+
+    /**
+     * @param vf
+     * @param vocab
+     * @param maxRecords
+     *        Number of records to sample.
+     */
+    public SchemaSampler(ValueFactory vf, String vocab, long maxRecords) {
+        this.vf = vf;
+        this.vocab = vocab;
+        this.maxRecords = maxRecords;
+    }
+
+    /**
+     * @return True once enough records have been sampled.
+     */
+    public boolean isComplete() {
+        return records >= maxRecords;
+    }
+
+    /**
+     * Sample records of given file, plain, gzip or zip compressed.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void sample(File file) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 1024);
+        try {
+            sample(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void sample(InputStream in) throws IOException {
+        if (ZipUtil.isZipStream(in)) {
+            ZipInputStream zipIn = new ZipInputStream(in);
+            for (ZipEntry entry = zipIn.getNextEntry(); entry != null && !isComplete(); entry = zipIn.getNextEntry()) {
+                if (!entry.isDirectory()) {
+                    sample(new BufferedInputStream(zipIn, 1024));
+                }
+            }
+        } else if (GZipUtil.isGZipStream(in)) {
+            sample(new BufferedInputStream(new GZIPInputStream(in), 1024));
+        } else {
+            sampleJson(in);
+        }
+    }
+
+    private void sampleJson(InputStream in) throws IOException {
+        // Does not close the underlying (zip) stream.
+        JsonParser parser = ParseBuffers.createParser(in);
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                return;
+            }
+            if (!token.isStructStart()) {
+                // Top-level scalar.
+                records++;
+                return;
+            }
+            boolean array = token == JsonToken.START_ARRAY;
+            int depth = 1;
+            String key = null;
+            while (depth > 0 && !isComplete()) {
+                token = parser.nextToken();
+                if (token == null) {
+                    break;
+                }
+                if (token == JsonToken.FIELD_NAME) {
+                    key = parser.getCurrentName();
+                    continue;
+                }
+                if (key != null) {
+                    observe(key, token);
+                    key = null;
+                }
+                if (token.isStructStart()) {
+                    depth++;
+                    continue;
+                }
+                if (token.isStructEnd()) {
+                    depth--;
+                }
+                if (array && depth == 1) {
+                    // An item of the top-level array is complete.
+                    records++;
+                }
+            }
+            if (!array && depth == 0) {
+                records++;
+            }
+        } finally {
+            parser.close();
+        }
+    }
+
+    private void observe(String key, JsonToken token) {
+        if (key.isEmpty() || key.startsWith("@") || key.indexOf(':') >= 0) {
+            return;
+        }
+        Counter counter = keys.get(key);
+        if (counter == null) {
+            counter = new Counter();
+            keys.put(key, counter);
+        }
+        counter.occurrences++;
+        counter.kinds[kindOf(token).ordinal()]++;
+    }
+
+    private static InferredSchema.Kind kindOf(JsonToken token) {
+        switch (token) {
+            case START_OBJECT:
+                return InferredSchema.Kind.OBJECT;
+            case START_ARRAY:
+                return InferredSchema.Kind.ARRAY;
+            case VALUE_NUMBER_INT:
+                return InferredSchema.Kind.INTEGER;
+            case VALUE_NUMBER_FLOAT:
+                return InferredSchema.Kind.DOUBLE;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                return InferredSchema.Kind.BOOLEAN;
+            case VALUE_NULL:
+                return InferredSchema.Kind.NULL;
+            default:
+                return InferredSchema.Kind.STRING;
+        }
+    }
+
+    /**
+     * @return Table of all keys sampled so far.
+     */
+    public InferredSchema build() {
+        Map<String, InferredSchema.Property> properties = new HashMap<>();
+        for (Map.Entry<String, Counter> entry : keys.entrySet()) {
+            properties.put(entry.getKey(), new InferredSchema.Property(entry.getKey(),
+                    vf.createURI(vocab + entry.getKey()), entry.getValue().occurrences,
+                    entry.getValue().kinds.clone()));
+        }
+        return new InferredSchema(properties, records);
+    }
+
+    private static class Counter {
+
+        private long occurrences = 0L;
+
+        private final long[] kinds = new long[InferredSchema.Kind.values().length];
+    }
+}
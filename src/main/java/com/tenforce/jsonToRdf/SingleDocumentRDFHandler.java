@@ -0,0 +1,80 @@
+package com.tenforce.jsonToRdf;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+
+/**
+ * Presents all documents of an input (e.g. entries of a zip file) as one document to
+ * the wrapped handler. Start and end events of the single documents are ignored, the
+ * wrapped handler is started by {@link #begin()} and ended by {@link #finish()}.
+ *
+ * This is required for RDF writers, which can not be started again once they have
+ * been ended. Blank node labels restart in every document (jsonld-java starts at _:b0
+ * each time), so they are prefixed with the number of the document to keep blank nodes
+ * of different documents apart.
+ */
+public class SingleDocumentRDFHandler extends RDFHandlerWrapper {
+
+    private final Resource context;
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    /**
+     * Number of documents started.
+     */
+    private long document = 0L;
+
+    /**
+     * @param handler
+     * @param context
+     *        If not null then all statements are put into this context.
+     */
+    public SingleDocumentRDFHandler(RDFHandler handler, Resource context) {
+        super(handler);
+        this.context = context;
+    }
+
+    public void begin() throws RDFHandlerException {
+        super.startRDF();
+    }
+
+    public void finish() throws RDFHandlerException {
+        super.endRDF();
+    }
+
+    @Override
+    public void startRDF() {
+        document++;
+    }
+
+    @Override
+    public void endRDF() {
+    }
+
+    @Override
+    public void handleStatement(Statement st) throws RDFHandlerException {
+        Resource subject = (Resource) scope(st.getSubject());
+        Value object = scope(st.getObject());
+        Resource statementContext = context != null ? context : (Resource) scope(st.getContext());
+        if (statementContext != null) {
+            st = vf.createStatement(subject, st.getPredicate(), object, statementContext);
+        } else {
+            st = vf.createStatement(subject, st.getPredicate(), object);
+        }
+        super.handleStatement(st);
+    }
+
+    private Value scope(Value value) {
+        if (value instanceof BNode) {
+            return vf.createBNode("d" + document + "x" + ((BNode) value).getID());
+        }
+        return value;
+    }
+}
@@ -0,0 +1,197 @@
+package com.tenforce.jsonToRdf;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Literal;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+
+/**
+ * Drops duplicate statements before they reach the repository.
+ *
+ * Every statement is reduced to a 64-bit fingerprint that is kept in a bounded
+ * {@link LongFingerprintSet}. Fingerprints of the file being converted are kept
+ * aside until {@link Filter#publish()} is called, so a file attempt that is rolled
+ * back and retried does not lose its statements as "duplicates".
+ *
+ * One instance is used for the whole execution; it is not thread-safe.
+ */
+public class StatementDeduplicator {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Initial table size of the fingerprints of a single file, most files are small.
+     */
+    private static final int PENDING_TABLE_SIZE = 64;
+
+    private final LongFingerprintSet published;
+
+    private final int capacity;
+
+    private long statementCounter = 0L;
+
+    private long duplicateCounter = 0L;
+
+    /**
+     * @param capacity
+     *        Maximum number of fingerprints remembered, when reached statements are no
+     *        longer deduplicated against unseen fingerprints.
+     */
+    public StatementDeduplicator(int capacity) {
+        this.capacity = capacity;
+        this.published = new LongFingerprintSet(capacity);
+    }
+
+    /**
+     * @param handler
+     *        Handler that receives unique statements.
+     * @param graph
+     *        Graph the statements end up in, duplicates are detected per graph.
+     * @param documentScope
+     *        Blank nodes are only equal within the same scope, use a different value for each
+     *        file. Within a file every document (e.g. a zip entry) is a scope of its own, as
+     *        the inserter creates new blank nodes for each document.
+     * @return Filter for a single file.
+     */
+    public Filter wrap(RDFHandler handler, Resource graph, long documentScope) {
+        return new Filter(handler, graph, documentScope);
+    }
+
+    public long getStatementCounter() {
+        return statementCounter;
+    }
+
+    public long getDuplicateCounter() {
+        return duplicateCounter;
+    }
+
+    /**
+     * @return Ratio of dropped statements to all seen statements.
+     */
+    public double getDuplicateRatio() {
+        if (statementCounter == 0L) {
+            return 0.0;
+        }
+        return (double) duplicateCounter / statementCounter;
+    }
+
+    /**
+     * @return True if the fingerprint capacity has been exhausted.
+     */
+    public boolean isSaturated() {
+        return published.isFull();
+    }
+
+    public class Filter extends RDFHandlerWrapper {
+
+        private final LongFingerprintSet pending;
+
+        private final long graphHash;
+
+        private final long documentScope;
+
+        /**
+         * Number of the document of the file, counted by its start.
+         */
+        private long document = 0L;
+
+        private long pendingStatements = 0L;
+
+        private long pendingDuplicates = 0L;
+
+        Filter(RDFHandler handler, Resource graph, long documentScope) {
+            super(handler);
+            // The pending set only holds what the published set can still accept, it starts
+            // small and grows with the file.
+            this.pending = new LongFingerprintSet(Math.max(1, capacity - published.size()), PENDING_TABLE_SIZE);
+            this.graphHash = graph == null ? FNV_OFFSET_BASIS : hashString(FNV_OFFSET_BASIS, graph.stringValue());
+            this.documentScope = documentScope;
+        }
+
+        @Override
+        public void startRDF() throws RDFHandlerException {
+            // Labels restart in every document, e.g. jsonld-java starts at _:b0 each time.
+            document++;
+            super.startRDF();
+        }
+
+        @Override
+        public void handleStatement(Statement st) throws RDFHandlerException {
+            pendingStatements++;
+            long fingerprint = fingerprint(st);
+            if (published.contains(fingerprint) || !pending.add(fingerprint)) {
+                pendingDuplicates++;
+                return;
+            }
+            super.handleStatement(st);
+        }
+
+        /**
+         * Make fingerprints of this file visible for next files and add this file to the
+         * statistics. Call once the file has been loaded successfully.
+         */
+        public void publish() {
+            published.addAll(pending);
+            pending.clear();
+            statementCounter += pendingStatements;
+            duplicateCounter += pendingDuplicates;
+            pendingStatements = 0L;
+            pendingDuplicates = 0L;
+        }
+
+        private long fingerprint(Statement st) {
+            long h = graphHash;
+            h = hash(h, st.getSubject());
+            h = hash(h, st.getPredicate());
+            h = hash(h, st.getObject());
+            // Final avalanche (MurmurHash3 fmix64) so similar statements spread over the table.
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+
+        private long hash(long h, Value value) {
+            if (value instanceof BNode) {
+                h = mix(h, 'b');
+                h = mix(h, documentScope);
+                h = mix(h, document);
+            } else if (value instanceof Literal) {
+                Literal literal = (Literal) value;
+                h = mix(h, 'l');
+                // Tag datatype and language so a datatype never hashes like a language.
+                if (literal.getDatatype() != null) {
+                    h = mix(h, '^');
+                    h = hashString(h, literal.getDatatype().stringValue());
+                }
+                if (literal.getLanguage() != null) {
+                    h = mix(h, '@');
+                    h = hashString(h, literal.getLanguage());
+                }
+            } else {
+                h = mix(h, 'u');
+            }
+            return hashString(h, value.stringValue());
+        }
+    }
+
+    private static long hashString(long h, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            h = mix(h, value.charAt(i));
+        }
+        // Terminate the value so ("ab", "c") and ("a", "bc") differ.
+        return mix(h, 0xffff);
+    }
+
+    private static long mix(long h, long value) {
+        return (h ^ value) * FNV_PRIME;
+    }
+}
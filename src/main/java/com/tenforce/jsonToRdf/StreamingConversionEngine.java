@@ -0,0 +1,216 @@
+package com.tenforce.jsonToRdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openrdf.model.BNode;
+import org.openrdf.model.Resource;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.github.jsonldjava.core.JsonLdError;
+
+/**
+ * Converts a top-level JSON array one item at a time, so only one item is held in
+ * memory. Every item is converted by the record engine. The result is isomorphic to
+ * converting the whole array at once: all items hang off a single root node and blank
+ * nodes of different items are kept apart.
+ */
+public class StreamingConversionEngine implements ConversionEngine {
+
+    /**
+     * Temporary identifier of the root node while converting a top-level array item by item.
+     */
+    private static final String RECORD_ROOT_ID = "urn:x-jsontordf:record-root";
+
+    /**
+     * Number of distinct values linked to the root that are remembered to emit each once.
+     */
+    private static final int MAX_ROOT_VALUES = 100000;
+
+    private final ConversionEngine recordEngine;
+
+    private final ValueFactory vf;
+
+    private final boolean arrayRequired;
+
+    private final boolean contextsHonoured;
+
+    /**
+     * @param recordEngine
+     *        Converts single items.
+     * @param vf
+     * @param arrayRequired
+     *        If true then documents that are not a top-level array are rejected, otherwise
+     *        they are read whole and converted by the record engine.
+     */
+    public StreamingConversionEngine(ConversionEngine recordEngine, ValueFactory vf, boolean arrayRequired) {
+        this(recordEngine, vf, arrayRequired, false);
+    }
+
+    /**
+     * @param recordEngine
+     *        Converts single items.
+     * @param vf
+     * @param arrayRequired
+     *        If true then documents that are not a top-level array are rejected, otherwise
+     *        they are read whole and converted by the record engine.
+     * @param contextsHonoured
+     *        If true then an item with its own context is a JSON-LD document and converted
+     *        on its own instead of under the root node.
+     */
+    public StreamingConversionEngine(ConversionEngine recordEngine, ValueFactory vf, boolean arrayRequired,
+            boolean contextsHonoured) {
+        this.recordEngine = recordEngine;
+        this.vf = vf;
+        this.arrayRequired = arrayRequired;
+        this.contextsHonoured = contextsHonoured;
+    }
+
+    @Override
+    public void convert(InputStream in, RDFHandler handler) throws IOException, RDFHandlerException, JsonLdError {
+        JsonParser parser = ParseBuffers.createParser(in);
+        try {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                if (arrayRequired || parser.getCurrentToken() == null) {
+                    throw new IOException("Document is not a top-level JSON array and can not be converted item by item.");
+                }
+                recordEngine.convert(ParseBuffers.readValue(parser), null, handler);
+                return;
+            }
+            RecordScopingHandler recordHandler = new RecordScopingHandler(handler, vf, vf.createURI(RECORD_ROOT_ID));
+            recordHandler.begin();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (parser.getCurrentToken() == null) {
+                    throw new IOException("Unexpected end of JSON array.");
+                }
+                Object record = ParseBuffers.readValue(parser);
+                recordHandler.nextRecord();
+                List<Object> records = new ArrayList<Object>(1);
+                records.add(record);
+                if (contextsHonoured && record instanceof Map && ((Map<?, ?>) record).containsKey("@context")) {
+                    // Kept in an array: a top-level object with only a graph would make that
+                    // graph the default one, an array item names it by a blank node.
+                    recordEngine.convert(records, null, recordHandler);
+                    continue;
+                }
+                HashMap<String, Object> root = new HashMap<String, Object>();
+                root.put(DATASETS_KEY, records);
+                recordEngine.convert(root, recordHandler.getRootId(), recordHandler);
+            }
+            recordHandler.end();
+        } finally {
+            parser.close();
+        }
+    }
+
+    @Override
+    public void convert(Object json, Resource root, RDFHandler handler) throws RDFHandlerException, JsonLdError {
+        recordEngine.convert(json, root, handler);
+    }
+
+    /**
+     * Merges conversions of single array items into one document: the temporary root of all
+     * items becomes one blank node, other blank nodes are renamed per item. Statements keep
+     * their graph, e.g. the named graph of a JSON-LD item. Start and end events of the single
+     * conversions are suppressed.
+     *
+     * Items that are equal literals (e.g. the same string twice) link the root to the same value;
+     * JSON-LD keeps such a statement once, so links of the root to anything but a blank node are
+     * remembered and emitted once. Links to records are blank nodes and are not remembered. At
+     * most {@link #MAX_ROOT_VALUES} values are remembered, so memory stays bounded for huge
+     * arrays of scalars; a value repeated after that is emitted again.
+     */
+    private static class RecordScopingHandler extends RDFHandlerWrapper {
+
+        private final ValueFactory vf;
+
+        private final URI rootId;
+
+        private final BNode root;
+
+        private long record = 0L;
+
+        private final Set<Value> rootValues = new HashSet<>();
+
+        RecordScopingHandler(RDFHandler handler, ValueFactory vf, URI rootId) {
+            super(handler);
+            this.vf = vf;
+            this.rootId = rootId;
+            this.root = vf.createBNode("root");
+        }
+
+        void begin() throws RDFHandlerException {
+            super.startRDF();
+        }
+
+        URI getRootId() {
+            return rootId;
+        }
+
+        void nextRecord() {
+            record++;
+        }
+
+        void end() throws RDFHandlerException {
+            super.endRDF();
+        }
+
+        @Override
+        public void startRDF() {
+        }
+
+        @Override
+        public void endRDF() {
+        }
+
+        @Override
+        public void handleStatement(Statement st) throws RDFHandlerException {
+            if (rootId.equals(st.getSubject())) {
+                Value object = scope(st.getObject());
+                // The root only links the items by a single predicate in the default graph.
+                if (object instanceof BNode || isFirstRootValue(object)) {
+                    super.handleStatement(vf.createStatement(root, st.getPredicate(), object));
+                }
+                return;
+            }
+            Resource context = (Resource) scope(st.getContext());
+            Resource subject = (Resource) scope(st.getSubject());
+            if (context == null) {
+                super.handleStatement(vf.createStatement(subject, st.getPredicate(), scope(st.getObject())));
+            } else {
+                super.handleStatement(vf.createStatement(subject, st.getPredicate(), scope(st.getObject()), context));
+            }
+        }
+
+        private boolean isFirstRootValue(Value value) {
+            if (rootValues.contains(value)) {
+                return false;
+            }
+            if (rootValues.size() < MAX_ROOT_VALUES) {
+                rootValues.add(value);
+            }
+            return true;
+        }
+
+        private Value scope(Value value) {
+            if (value instanceof BNode) {
+                return vf.createBNode("r" + record + "_" + ((BNode) value).getID());
+            }
+            return value;
+        }
+    }
+}
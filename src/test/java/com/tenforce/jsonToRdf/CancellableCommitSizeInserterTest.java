@@ -0,0 +1,282 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.util.ModelUtil;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryResult;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.rio.ParserConfig;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.ParseErrorLogger;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+import org.openrdf.sail.memory.MemoryStore;
+
+public class CancellableCommitSizeInserterTest {
+
+    private static final String VOCAB = "http://example.com/vocab/";
+
+    private static final String FILE = "file.json";
+
+    private static final int COMMIT_SIZE = 3;
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    private final URI graph = vf.createURI("http://example.com/graph");
+
+    private final ParseErrorListenerEnabledRDFLoader loader = new ParseErrorListenerEnabledRDFLoader(
+            new ParserConfig(), ValueFactoryImpl.getInstance(), VOCAB);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private SailRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new SailRepository(new MemoryStore());
+        repository.initialize();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.shutDown();
+    }
+
+    /**
+     * Blank nodes shared by statements before and after the resumed position stay the same
+     * nodes, the resumed graph is isomorphic to a graph loaded at once.
+     */
+    @Test
+    public void resumedDocumentKeepsBlankNodes() throws Exception {
+        byte[] json = records(4).getBytes(StandardCharsets.UTF_8);
+        assertResumedIsomorphic(json, 8);
+    }
+
+    @Test
+    public void resumedZipKeepsBlankNodes() throws Exception {
+        byte[] zip = zip(records(2), records(3));
+        // The first entry has 1 + 2 * 4 statements, fail in the second one.
+        assertResumedIsomorphic(zip, 14);
+    }
+
+    /**
+     * The execution stops in the middle of the file, the next execution opens the checkpoint
+     * again and inserts the rest of the file.
+     */
+    @Test
+    public void resumedExecutionKeepsBlankNodes() throws Exception {
+        byte[] zip = zip(records(2), records(3));
+        final File journal = new File(folder.getRoot(), "checkpoint");
+        assertResumedIsomorphic(zip, 14, new Callable<ConversionCheckpoint>() {
+
+            @Override
+            public ConversionCheckpoint call() throws Exception {
+                return ConversionCheckpoint.open(journal);
+            }
+        });
+        assertTrue(ConversionCheckpoint.open(journal).isCompleted(FILE));
+    }
+
+    @Test
+    public void checkpointIsRestored() throws Exception {
+        File journal = new File(folder.getRoot(), "checkpoint");
+        URI fileGraph = vf.createURI("http://example.com/graph/1");
+        ConversionCheckpoint checkpoint = ConversionCheckpoint.open(journal);
+        assertTrue(checkpoint.isEmpty());
+        checkpoint.graphCreated("input file.json", fileGraph);
+        checkpoint.statementsCommitted("input file.json", 50L);
+        checkpoint.statementsCommitted("input file.json", 100L);
+        checkpoint.statementsCommitted("second.json", 10L);
+        checkpoint.fileSkipped("second.json");
+        checkpoint.fileCompleted("third.json");
+        // A record cut short by a crash is ignored.
+        Files.write(journal.toPath(), "completed input".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        ConversionCheckpoint restored = ConversionCheckpoint.open(journal);
+        assertEquals(fileGraph, restored.getGraph("input file.json"));
+        assertTrue(restored.isGraphUsed(fileGraph));
+        assertEquals(100L, restored.getCommittedStatements("input file.json"));
+        assertFalse(restored.isCompleted("input file.json"));
+        assertTrue(restored.isSkipped("second.json"));
+        assertEquals(0L, restored.getCommittedStatements("second.json"));
+        assertTrue(restored.isCompleted("third.json"));
+        assertEquals(checkpoint.getBlankNodePrefix(FILE), restored.getBlankNodePrefix(FILE));
+        assertFalse(new ConversionCheckpoint().getBlankNodePrefix(FILE).equals(restored.getBlankNodePrefix(FILE)));
+    }
+
+    private void assertResumedIsomorphic(byte[] content, int failAfter) throws Exception {
+        final ConversionCheckpoint checkpoint = new ConversionCheckpoint();
+        assertResumedIsomorphic(content, failAfter, new Callable<ConversionCheckpoint>() {
+
+            @Override
+            public ConversionCheckpoint call() {
+                return checkpoint;
+            }
+        });
+    }
+
+    /**
+     * @param checkpoints
+     *        Gives the checkpoint of each attempt.
+     */
+    private void assertResumedIsomorphic(byte[] content, int failAfter, Callable<ConversionCheckpoint> checkpoints)
+            throws Exception {
+        List<Statement> expected = loadAtOnce(content);
+        clear();
+
+        ConversionCheckpoint checkpoint = checkpoints.call();
+        try {
+            insert(content, checkpoint, failAfter);
+            fail("The first attempt should fail");
+        } catch (RDFHandlerException ex) {
+            // Connection lost in the middle of the file.
+        }
+        long committed = checkpoint.getCommittedStatements(FILE);
+        assertTrue(committed > 0L);
+        checkpoint = checkpoints.call();
+        assertEquals(committed, checkpoint.getCommittedStatements(FILE));
+        long resumed = insert(content, checkpoint, -1);
+        checkpoint.fileCompleted(FILE);
+
+        // Committed statements are not inserted again.
+        assertEquals(expected.size(), committed + resumed);
+        List<Statement> actual = getStatements();
+        assertEquals(expected.size(), actual.size());
+        assertTrue(ModelUtil.equals(expected, actual));
+    }
+
+    @Test
+    public void skippedFileIsNotCompleted() {
+        ConversionCheckpoint checkpoint = new ConversionCheckpoint();
+        checkpoint.statementsCommitted(FILE, 6L);
+        checkpoint.fileSkipped(FILE);
+
+        assertTrue(checkpoint.isSkipped(FILE));
+        assertFalse(checkpoint.isCompleted(FILE));
+        assertEquals(0, checkpoint.getCompletedFilesCount());
+        assertEquals(1, checkpoint.getSkippedFilesCount());
+        assertEquals(0L, checkpoint.getCommittedStatements(FILE));
+    }
+
+    private List<Statement> loadAtOnce(byte[] content) throws Exception {
+        insert(content, new ConversionCheckpoint(), -1);
+        return getStatements();
+    }
+
+    /**
+     * @param failAfter
+     *        Fail once given number of statements has been inserted, if negative never fail.
+     * @return Number of statements committed by this attempt.
+     */
+    private long insert(byte[] content, ConversionCheckpoint checkpoint, final int failAfter) throws Exception {
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            CancellableCommitSizeInserter inserter = new CancellableCommitSizeInserter(connection, COMMIT_SIZE, null);
+            inserter.enforceContext(graph);
+            inserter.setCheckpoint(checkpoint, FILE);
+            RDFHandler handler = new RDFHandlerWrapper(inserter) {
+
+                private int count = 0;
+
+                @Override
+                public void handleStatement(Statement st) throws RDFHandlerException {
+                    if (count++ == failAfter) {
+                        throw new RDFHandlerException("Connection lost");
+                    }
+                    super.handleStatement(st);
+                }
+            };
+            try {
+                loader.load(new ByteArrayInputStream(content), "http://example.com/", null, handler,
+                        new ParseErrorLogger());
+            } finally {
+                if (connection.isActive()) {
+                    connection.rollback();
+                }
+            }
+            return inserter.getCommittedStatements();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private List<Statement> getStatements() throws Exception {
+        List<Statement> statements = new ArrayList<>();
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            RepositoryResult<Statement> result = connection.getStatements(null, null, null, false, graph);
+            while (result.hasNext()) {
+                Statement st = result.next();
+                statements.add(vf.createStatement(st.getSubject(), st.getPredicate(), st.getObject()));
+            }
+            result.close();
+        } finally {
+            connection.close();
+        }
+        return statements;
+    }
+
+    private void clear() throws Exception {
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            connection.clear(graph);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return Array of records, each with a nested object: 4 statements per record plus
+     *         the link of every record to the root.
+     */
+    private static String records(int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(String.format("{\"id\":%d,\"address\":{\"city\":\"city %d\",\"zip\":\"%05d\"}}", i, i, i));
+        }
+        return json.append(']').toString();
+    }
+
+    private static byte[] zip(String... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i++) {
+                zip.putNextEntry(new ZipEntry("entry-" + i + ".json"));
+                zip.write(entries[i].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
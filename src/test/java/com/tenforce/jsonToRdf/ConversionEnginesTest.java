@@ -0,0 +1,273 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.util.ModelUtil;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.helpers.ParseErrorLogger;
+import org.openrdf.rio.helpers.StatementCollector;
+
+import com.github.jsonldjava.core.DocumentLoader;
+
+/**
+ * Differential test of the conversion engines: every document of the corpus in
+ * {@code src/test/resources/engines} is converted by every engine and the graphs are
+ * compared with the graph of the reference engine.
+ */
+public class ConversionEnginesTest {
+
+    private static final String VOCAB = "http://example.com/vocab/";
+
+    /**
+     * Engines in the order they are compared, the first one is the reference.
+     */
+    private static final String[] ENGINES = {
+            JSONToRDFConfig_V1.CONVERSION_ENGINE_JSONLD,
+            JSONToRDFConfig_V1.CONVERSION_ENGINE_FAST,
+            JSONToRDFConfig_V1.CONVERSION_ENGINE_STREAMING
+    };
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    @Test
+    public void enginesAgreeOnCorpus() throws Exception {
+        assertEnginesAgree(null, null);
+    }
+
+    @Test
+    public void enginesAgreeOnCorpusWithInferredSchema() throws Exception {
+        SchemaSampler sampler = new SchemaSampler(vf, VOCAB, 1000);
+        for (File file : corpus()) {
+            sampler.sample(file);
+        }
+        assertEnginesAgree(sampler.build(), null);
+    }
+
+    @Test
+    public void enginesAgreeOnCorpusWithJsonLd() throws Exception {
+        assertEnginesAgree(null, new CachingDocumentLoader(null, false));
+    }
+
+    /**
+     * JSON-LD is expanded as a whole, the loader used for documents over the heap budget
+     * rejects it instead.
+     */
+    @Test
+    public void jsonLdIsNotConvertedItemByItem() throws Exception {
+        byte[] document = "[{\"@context\":{\"@vocab\":\"http://example.com/other/\"},\"n\":1}]"
+                .getBytes(StandardCharsets.UTF_8);
+        for (String engine : ENGINES) {
+            ParseErrorListenerEnabledRDFLoader loader = ConversionEngines.createLoader(engine, VOCAB, vf, null,
+                    new CachingDocumentLoader(null, false), true);
+            try {
+                loader.load(new ByteArrayInputStream(document), VOCAB, RDFFormat.JSONLD,
+                        new StatementCollector(), new ParseErrorLogger());
+                fail(engine + " should reject the JSON-LD document");
+            } catch (IOException ex) {
+                assertTrue(ex.getMessage().contains("heap budget"));
+            }
+            // The same array as plain JSON is converted item by item.
+            List<Statement> statements = new ArrayList<>();
+            loader.load(new ByteArrayInputStream(document), VOCAB, null, new StatementCollector(statements),
+                    new ParseErrorLogger());
+            assertFalse(statements.isEmpty());
+        }
+    }
+
+    /**
+     * Graphs with the same number of statements and the same literals but a different
+     * shape are told apart.
+     */
+    @Test
+    public void differentShapesAreNotIsomorphic() {
+        URI p = vf.createURI(VOCAB, "p");
+        BNode[] nodes = { vf.createBNode(), vf.createBNode(), vf.createBNode() };
+        List<Statement> chain = new ArrayList<>();
+        chain.add(vf.createStatement(nodes[0], p, nodes[1]));
+        chain.add(vf.createStatement(nodes[1], p, nodes[2]));
+        List<Statement> star = new ArrayList<>();
+        star.add(vf.createStatement(nodes[0], p, nodes[1]));
+        star.add(vf.createStatement(nodes[0], p, nodes[2]));
+
+        assertFalse(isomorphic(chain, star));
+        assertTrue(isomorphic(chain, chain));
+    }
+
+    private void assertEnginesAgree(InferredSchema schema, DocumentLoader documentLoader) throws Exception {
+        List<ParseErrorListenerEnabledRDFLoader> loaders = new ArrayList<>();
+        for (String engine : ENGINES) {
+            loaders.add(ConversionEngines.createLoader(engine, VOCAB, vf, schema, documentLoader, false));
+        }
+        for (File file : corpus()) {
+            List<Statement> reference = convert(loaders.get(0), file);
+            assertFalse(file.getName(), reference.isEmpty());
+            for (int i = 1; i < ENGINES.length; i++) {
+                String message = ENGINES[i] + " on " + file.getName();
+                List<Statement> statements = convert(loaders.get(i), file);
+                // Statements are compared as multisets, an engine must not repeat a statement.
+                assertEquals(message, reference.size(), statements.size());
+                assertEquals(message, reference.size(), new HashSet<>(statements).size());
+                // Refinement is a quick heuristic, the final word is ModelUtil.
+                assertTrue(message, isomorphic(reference, statements));
+                assertTrue(message, ModelUtil.equals(reference, statements));
+            }
+        }
+    }
+
+    private static List<Statement> convert(ParseErrorListenerEnabledRDFLoader loader, File file) throws Exception {
+        List<Statement> statements = new ArrayList<>();
+        loader.load(file, null, null, new StatementCollector(statements), new ParseErrorLogger());
+        return statements;
+    }
+
+    private static File[] corpus() throws Exception {
+        File directory = new File(ConversionEnginesTest.class.getResource("/engines").toURI());
+        File[] files = directory.listFiles();
+        Arrays.sort(files);
+        assertTrue(files.length > 0);
+        return files;
+    }
+
+    /**
+     * Statements are compared with their graph. Blank nodes are matched by colour refinement, which decides isomorphism of blank
+     * node trees but may accept some graphs that are not isomorphic.
+     *
+     * @return True if the graphs are likely equal up to blank node labels.
+     */
+    private static boolean isomorphic(Collection<Statement> left, Collection<Statement> right) {
+        if (left.size() != right.size()) {
+            return false;
+        }
+        Map<BNode, Long> leftColours = initialColours(left);
+        Map<BNode, Long> rightColours = initialColours(right);
+        int distinct = 1;
+        // Every round splits classes of blank nodes with different neighbourhoods, stop once nothing is split.
+        while (true) {
+            leftColours = refine(left, leftColours);
+            rightColours = refine(right, rightColours);
+            Set<Long> colours = new HashSet<>(leftColours.values());
+            colours.addAll(rightColours.values());
+            if (colours.size() <= distinct) {
+                break;
+            }
+            distinct = colours.size();
+        }
+        return Arrays.equals(signature(left, leftColours), signature(right, rightColours));
+    }
+
+    private static Map<BNode, Long> initialColours(Collection<Statement> statements) {
+        Map<BNode, Long> colours = new HashMap<>();
+        for (Statement st : statements) {
+            if (st.getSubject() instanceof BNode) {
+                colours.put((BNode) st.getSubject(), 0L);
+            }
+            if (st.getObject() instanceof BNode) {
+                colours.put((BNode) st.getObject(), 0L);
+            }
+            if (st.getContext() instanceof BNode) {
+                colours.put((BNode) st.getContext(), 0L);
+            }
+        }
+        return colours;
+    }
+
+    private static Map<BNode, Long> refine(Collection<Statement> statements, Map<BNode, Long> colours) {
+        Map<BNode, List<Long>> neighbourhoods = new HashMap<>();
+        for (Statement st : statements) {
+            long predicate = hash(st.getPredicate().stringValue());
+            long context = colour(st.getContext(), colours);
+            if (st.getSubject() instanceof BNode) {
+                neighbourhood(neighbourhoods, (BNode) st.getSubject())
+                        .add(mix(mix(mix(1L, predicate), colour(st.getObject(), colours)), context));
+            }
+            if (st.getObject() instanceof BNode) {
+                neighbourhood(neighbourhoods, (BNode) st.getObject())
+                        .add(mix(mix(mix(2L, predicate), colour(st.getSubject(), colours)), context));
+            }
+            if (st.getContext() instanceof BNode) {
+                neighbourhood(neighbourhoods, (BNode) st.getContext()).add(mix(mix(mix(3L, predicate),
+                        colour(st.getSubject(), colours)), colour(st.getObject(), colours)));
+            }
+        }
+        Map<BNode, Long> refined = new HashMap<>();
+        for (Map.Entry<BNode, List<Long>> entry : neighbourhoods.entrySet()) {
+            long[] values = new long[entry.getValue().size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = entry.getValue().get(i);
+            }
+            Arrays.sort(values);
+            long colour = colours.get(entry.getKey());
+            for (long value : values) {
+                colour = mix(colour, value);
+            }
+            refined.put(entry.getKey(), colour);
+        }
+        return refined;
+    }
+
+    private static List<Long> neighbourhood(Map<BNode, List<Long>> neighbourhoods, BNode node) {
+        List<Long> neighbourhood = neighbourhoods.get(node);
+        if (neighbourhood == null) {
+            neighbourhood = new ArrayList<>();
+            neighbourhoods.put(node, neighbourhood);
+        }
+        return neighbourhood;
+    }
+
+    private static long[] signature(Collection<Statement> statements, Map<BNode, Long> colours) {
+        long[] signature = new long[statements.size()];
+        int index = 0;
+        for (Statement st : statements) {
+            signature[index++] = mix(mix(mix(colour(st.getSubject(), colours), hash(st.getPredicate().stringValue())),
+                    colour(st.getObject(), colours)), colour(st.getContext(), colours));
+        }
+        Arrays.sort(signature);
+        return signature;
+    }
+
+    private static long colour(Value value, Map<BNode, Long> colours) {
+        if (value == null) {
+            return 0L;
+        }
+        if (value instanceof BNode) {
+            return colours.get(value);
+        }
+        return hash(value.toString());
+    }
+
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long h, long value) {
+        h = (h ^ value) * 0x9e3779b97f4a7c15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,206 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSchedulerTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void assignBalancesLoads() {
+        FileScheduler<String> scheduler = scheduler(3L, 7L, 1L, 5L, 2L, 6L, 4L);
+        List<FileScheduler.Task<String>> tasks = scheduler.assign(3);
+
+        // Largest first: 7, 6 and 5 start the workers, 4, 3 and 2 fill them up to 9 each.
+        assertEquals(Arrays.asList("7", "6", "5", "4", "3", "2", "1"), items(tasks));
+        assertEquals(Arrays.asList(0, 1, 2, 2, 1, 0, 0), workers(tasks));
+        assertEquals(Arrays.asList(10L, 9L, 9L), loads(tasks, 3));
+    }
+
+    /**
+     * Items of the same size keep their order and go round the workers, the least loaded
+     * worker with the lowest index first.
+     */
+    @Test
+    public void tiesKeepOrderAndLowestWorker() {
+        FileScheduler<String> scheduler = new FileScheduler<>();
+        for (String item : new String[] { "a", "b", "c", "d", "e" }) {
+            scheduler.add(item, 10L);
+        }
+        List<FileScheduler.Task<String>> tasks = scheduler.assign(2);
+
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), items(tasks));
+        assertEquals(Arrays.asList(0, 1, 0, 1, 0), workers(tasks));
+    }
+
+    @Test
+    public void emptyItemsAreSpread() {
+        FileScheduler<String> scheduler = scheduler(0L, 0L, 0L, 0L);
+        assertEquals(Arrays.asList(0, 1, 0, 1), workers(scheduler.assign(2)));
+    }
+
+    /**
+     * A huge item keeps its worker to itself, all other items go to the other workers.
+     */
+    @Test
+    public void singleHugeItemHasOwnWorker() {
+        FileScheduler<String> scheduler = scheduler(5L, 1000L, 3L, 8L, 2L, 6L);
+        List<FileScheduler.Task<String>> tasks = scheduler.assign(3);
+
+        assertEquals("1000", tasks.get(0).getItem());
+        assertEquals(0, tasks.get(0).getWorker());
+        for (FileScheduler.Task<String> task : tasks.subList(1, tasks.size())) {
+            assertTrue(task.getWorker() != 0);
+        }
+        assertEquals(Arrays.asList(1000L, 13L, 11L), loads(tasks, 3));
+    }
+
+    @Test
+    public void moreWorkersThanItems() {
+        FileScheduler<String> scheduler = scheduler(1L, 3L, 2L);
+        List<FileScheduler.Task<String>> tasks = scheduler.assign(8);
+
+        assertEquals(Arrays.asList("3", "2", "1"), items(tasks));
+        assertEquals(Arrays.asList(0, 1, 2), workers(tasks));
+    }
+
+    @Test
+    public void noItems() {
+        assertTrue(new FileScheduler<String>().assign(4).isEmpty());
+        assertTrue(new FileScheduler<String>().batches(10L).isEmpty());
+    }
+
+    /**
+     * Large items are batches of their own, small ones are grouped until a batch reaches the
+     * batch size. Only the last batch may stay below it.
+     */
+    @Test
+    public void batchesGroupSmallItems() {
+        FileScheduler<String> scheduler = scheduler(1L, 40L, 2L, 3L, 12L, 4L, 5L, 1L);
+        List<List<String>> batches = scheduler.batches(10L);
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("40"),
+                Arrays.asList("12"),
+                Arrays.asList("5", "4", "3"),
+                Arrays.asList("2", "1", "1")), batches);
+    }
+
+    @Test
+    public void batchesKeepEveryItemOnce() {
+        FileScheduler<String> scheduler = new FileScheduler<>();
+        List<String> added = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String item = "file-" + i;
+            // Mostly small files with a few large ones.
+            scheduler.add(item, i % 100 == 0 ? 10L * 1024L * 1024L : 1024L + i);
+            added.add(item);
+        }
+        long batchSize = JSONToRDFBatchConverter.batchSize(scheduler.getTotalSize(), 4);
+        List<List<String>> batches = scheduler.batches(batchSize);
+
+        List<String> scheduled = new ArrayList<>();
+        for (List<String> batch : batches) {
+            scheduled.addAll(batch);
+        }
+        assertEquals(added.size(), scheduled.size());
+        assertEquals(new HashSet<>(added), new HashSet<>(scheduled));
+        // Every large file is a batch of its own.
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, batches.get(i).size());
+        }
+    }
+
+    @Test
+    public void batchSizeIsCapped() {
+        assertEquals(JSONToRDFBatchConverter.MAX_BATCH_SIZE,
+                JSONToRDFBatchConverter.batchSize(100L * JSONToRDFBatchConverter.MAX_BATCH_SIZE * 64L, 4));
+        // Enough batches for 16 per thread.
+        assertEquals(1000L, JSONToRDFBatchConverter.batchSize(64000L, 4));
+        assertEquals(1L, JSONToRDFBatchConverter.batchSize(10L, 4));
+        assertEquals(1L, JSONToRDFBatchConverter.batchSize(0L, 4));
+    }
+
+    /**
+     * A zip is as much work as all its entries, a gzip file as its uncompressed content.
+     */
+    @Test
+    public void estimateSizeCoversAllEntries() throws Exception {
+        File zip = folder.newFile("input.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip))) {
+            for (int i = 0; i < 3; i++) {
+                out.putNextEntry(new ZipEntry("entry-" + i + ".json"));
+                out.write(new byte[1000 * (i + 1)]);
+                out.closeEntry();
+            }
+        }
+        assertEquals(6000L, FileScheduler.estimateSize(zip));
+        // The memory estimate still only needs the largest entry.
+        assertEquals(3000L, MemoryGovernor.estimateDocumentSize(zip));
+
+        File gzip = folder.newFile("input.json.gz");
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzip))) {
+            out.write(new byte[5000]);
+        }
+        assertEquals(5000L, FileScheduler.estimateSize(gzip));
+
+        File plain = folder.newFile("input.json");
+        try (OutputStream out = new FileOutputStream(plain)) {
+            out.write(new byte[700]);
+        }
+        assertEquals(700L, FileScheduler.estimateSize(plain));
+    }
+
+    /**
+     * @return Scheduler with one item per size, named by its size.
+     */
+    private static FileScheduler<String> scheduler(long... sizes) {
+        FileScheduler<String> scheduler = new FileScheduler<>();
+        for (long size : sizes) {
+            scheduler.add(Long.toString(size), size);
+        }
+        return scheduler;
+    }
+
+    private static List<String> items(List<FileScheduler.Task<String>> tasks) {
+        List<String> items = new ArrayList<>();
+        for (FileScheduler.Task<String> task : tasks) {
+            items.add(task.getItem());
+        }
+        return items;
+    }
+
+    private static List<Integer> workers(List<FileScheduler.Task<String>> tasks) {
+        List<Integer> workers = new ArrayList<>();
+        for (FileScheduler.Task<String> task : tasks) {
+            workers.add(task.getWorker());
+        }
+        return workers;
+    }
+
+    private static List<Long> loads(List<FileScheduler.Task<String>> tasks, int workers) {
+        Long[] loads = new Long[workers];
+        Arrays.fill(loads, 0L);
+        for (FileScheduler.Task<String> task : tasks) {
+            loads[task.getWorker()] += task.getSize();
+        }
+        return Arrays.asList(loads);
+    }
+}
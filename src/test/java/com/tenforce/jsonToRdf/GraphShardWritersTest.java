@@ -0,0 +1,289 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.util.ModelUtil;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryResult;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.rio.ParserConfig;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.RDFHandlerException;
+import org.openrdf.rio.helpers.ParseErrorLogger;
+import org.openrdf.rio.helpers.RDFHandlerWrapper;
+import org.openrdf.sail.memory.MemoryStore;
+
+public class GraphShardWritersTest {
+
+    private static final String VOCAB = "http://example.com/vocab/";
+
+    private static final int COMMIT_SIZE = 3;
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    private final URI graph = vf.createURI("http://example.com/graph/0");
+
+    private final ParseErrorListenerEnabledRDFLoader loader = new ParseErrorListenerEnabledRDFLoader(
+            new ParserConfig(), ValueFactoryImpl.getInstance(), VOCAB);
+
+    private SailRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new SailRepository(new MemoryStore());
+        repository.initialize();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.shutDown();
+    }
+
+    @Test
+    public void failedLoadIsRetried() throws Exception {
+        GraphShardWriters writers = new GraphShardWriters(2, "test");
+        final AtomicInteger attempts = new AtomicInteger();
+        final IOException failure = new IOException("Connection lost");
+        GraphShardWriters.FileLoad load = new GraphShardWriters.FileLoad() {
+
+            @Override
+            public void load(int shard) throws Exception {
+                if (attempts.incrementAndGet() == 1) {
+                    throw failure;
+                }
+            }
+        };
+        try {
+            writers.await(writers.submit(1, load), 10000L);
+            fail("The first attempt should fail");
+        } catch (IOException ex) {
+            assertSame(failure, ex);
+        }
+        // A failed load does not stop the writers.
+        assertTrue(writers.await(writers.submit(1, load), 10000L));
+        assertEquals(2, attempts.get());
+        writers.shutdown();
+    }
+
+    @Test
+    public void awaitTimesOut() throws Exception {
+        GraphShardWriters writers = new GraphShardWriters(1, "test");
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<Void> result = writers.submit(0, new GraphShardWriters.FileLoad() {
+
+            @Override
+            public void load(int shard) throws Exception {
+                release.await();
+            }
+        });
+        assertFalse(writers.await(result, 10L));
+        release.countDown();
+        assertTrue(writers.await(result, 10000L));
+        writers.shutdown();
+    }
+
+    @Test
+    public void queuedLoadsAreNotRunAfterShutdown() throws Exception {
+        final GraphShardWriters writers = new GraphShardWriters(1, "test");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loaded = new AtomicInteger();
+        writers.submit(0, new GraphShardWriters.FileLoad() {
+
+            @Override
+            public void load(int shard) throws Exception {
+                started.countDown();
+                release.await();
+                loaded.incrementAndGet();
+            }
+        });
+        Future<Void> queued = writers.submit(0, new GraphShardWriters.FileLoad() {
+
+            @Override
+            public void load(int shard) throws Exception {
+                loaded.incrementAndGet();
+            }
+        });
+        started.await();
+        Thread shutdown = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                writers.shutdown();
+            }
+        });
+        shutdown.start();
+        // Release the running load once the shutdown waits for it.
+        while (shutdown.getState() != Thread.State.TIMED_WAITING) {
+            Thread.sleep(1L);
+        }
+        release.countDown();
+        shutdown.join();
+        assertEquals(1, loaded.get());
+        try {
+            writers.await(queued, 10000L);
+            fail("The queued load should not run");
+        } catch (Exception ex) {
+            // Expected.
+        }
+    }
+
+    /**
+     * A file of a shard fails in the middle, the next file of the shard publishes statements
+     * the failed file shares with it before the failed file is retried. The retry must
+     * still insert every statement that was not committed.
+     */
+    @Test
+    public void retryAfterSharedStatementsArePublished() throws Exception {
+        byte[] first = records(0, 10);
+        // Statements shared with the second file come before the failure.
+        byte[] second = records(0, 4);
+        load(new GraphShardWriters(1, "test"), null, new ConversionCheckpoint(), first, second, -1);
+        List<Statement> expected = getStatements();
+        clear();
+
+        GraphShardWriters writers = new GraphShardWriters(1, "test");
+        StatementDeduplicator deduplicator = new StatementDeduplicator(1000);
+        ConversionCheckpoint checkpoint = new ConversionCheckpoint();
+        load(writers, deduplicator, checkpoint, first, second, 14);
+
+        assertTrue(deduplicator.getDuplicateCounter() > 0L);
+        List<Statement> actual = getStatements();
+        assertEquals(expected.size(), actual.size());
+        assertTrue(ModelUtil.equals(expected, actual));
+    }
+
+    /**
+     * Load both files on the same shard the way the DPU does, the first one fails after
+     * given number of inserted statements and is retried once the second one is loaded.
+     */
+    private void load(GraphShardWriters writers, StatementDeduplicator deduplicator,
+            ConversionCheckpoint checkpoint, byte[] first, byte[] second, int failAfter) throws Exception {
+        try {
+            Future<Void> firstResult = writers.submit(0, fileLoad("first", 1L, first, deduplicator, checkpoint,
+                    failAfter));
+            Future<Void> secondResult = writers.submit(0, fileLoad("second", 2L, second, deduplicator, checkpoint,
+                    -1));
+            if (failAfter >= 0) {
+                try {
+                    writers.await(firstResult, 10000L);
+                    fail("The first attempt should fail");
+                } catch (RDFHandlerException ex) {
+                    // Connection lost in the middle of the file.
+                }
+                assertTrue(checkpoint.getCommittedStatements("first") > 0L);
+                assertTrue(writers.await(secondResult, 10000L));
+                firstResult = writers.submit(0, fileLoad("first", 1L, first, deduplicator, checkpoint, -1));
+            }
+            assertTrue(writers.await(firstResult, 10000L));
+            assertTrue(writers.await(secondResult, 10000L));
+        } finally {
+            writers.shutdown();
+        }
+    }
+
+    private GraphShardWriters.FileLoad fileLoad(final String file, final long documentScope, final byte[] content,
+            final StatementDeduplicator deduplicator, final ConversionCheckpoint checkpoint, final int failAfter) {
+        return new GraphShardWriters.FileLoad() {
+
+            @Override
+            public void load(int shard) throws Exception {
+                RepositoryConnection connection = repository.getConnection();
+                try {
+                    CancellableCommitSizeInserter inserter = new CancellableCommitSizeInserter(connection,
+                            COMMIT_SIZE, null);
+                    inserter.enforceContext(graph);
+                    inserter.setCheckpoint(checkpoint, file);
+                    RDFHandler handler = new RDFHandlerWrapper(inserter) {
+
+                        private int count = 0;
+
+                        @Override
+                        public void handleStatement(Statement st) throws RDFHandlerException {
+                            if (count++ == failAfter) {
+                                throw new RDFHandlerException("Connection lost");
+                            }
+                            super.handleStatement(st);
+                        }
+                    };
+                    StatementDeduplicator.Filter filter = null;
+                    if (deduplicator != null) {
+                        filter = deduplicator.wrap(handler, graph, documentScope);
+                        handler = inserter.countBefore(filter);
+                    }
+                    loader.load(new ByteArrayInputStream(content), "http://example.com/", null, handler,
+                            new ParseErrorLogger());
+                    if (filter != null) {
+                        filter.publish();
+                    }
+                    checkpoint.fileCompleted(file);
+                } finally {
+                    if (connection.isActive()) {
+                        connection.rollback();
+                    }
+                    connection.close();
+                }
+            }
+        };
+    }
+
+    private List<Statement> getStatements() throws Exception {
+        List<Statement> statements = new ArrayList<>();
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            RepositoryResult<Statement> result = connection.getStatements(null, null, null, false, graph);
+            while (result.hasNext()) {
+                Statement st = result.next();
+                statements.add(vf.createStatement(st.getSubject(), st.getPredicate(), st.getObject()));
+            }
+            result.close();
+        } finally {
+            connection.close();
+        }
+        return statements;
+    }
+
+    private void clear() throws Exception {
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            connection.clear(graph);
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * @return Array of records with identifiers, records with the same number give the same
+     *         statements in every file.
+     */
+    private static byte[] records(int from, int to) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            json.append(String.format("{\"@id\":\"http://example.com/record/%d\",\"name\":\"record %d\"}", i, i));
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+
+public class InferredSchemaTest {
+
+    private static final String VOCAB = "http://example.com/vocab/";
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    /**
+     * Every sampled key finds its predicate, also keys with the same hash code ("Aa" and
+     * "BB") and keys that are equal but not the same instance.
+     */
+    @Test
+    public void keysAreLookedUp() {
+        Map<String, InferredSchema.Property> properties = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            add(properties, "key" + i);
+        }
+        add(properties, "Aa");
+        add(properties, "BB");
+        InferredSchema schema = new InferredSchema(properties, 1L);
+
+        for (String key : properties.keySet()) {
+            assertEquals(vf.createURI(VOCAB, key), schema.getPredicate(new String(key)));
+        }
+        assertNull(schema.getPredicate("key1000"));
+        assertNull(schema.getPredicate("C#"));
+    }
+
+    @Test
+    public void emptySchemaHasNoKeys() {
+        InferredSchema schema = new InferredSchema(new HashMap<String, InferredSchema.Property>(), 0L);
+        assertNull(schema.getPredicate("key"));
+    }
+
+    private void add(Map<String, InferredSchema.Property> properties, String key) {
+        properties.put(key, new InferredSchema.Property(key, vf.createURI(VOCAB, key), 1L,
+                new long[InferredSchema.Kind.values().length]));
+    }
+}
@@ -0,0 +1,301 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.util.ModelUtil;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.RepositoryResult;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.rio.ParserConfig;
+import org.openrdf.rio.helpers.ParseErrorLogger;
+import org.openrdf.rio.helpers.StatementCollector;
+import org.openrdf.sail.memory.MemoryStore;
+
+/**
+ * Drives a single shared loader from several threads, each thread writes through its own
+ * connection and inserter while the run statistics and the skipped flag are shared.
+ */
+public class JSONToRDFConcurrencyTest {
+
+    private static final String VOCAB = "http://example.com/vocab/";
+
+    private static final int THREADS = 8;
+
+    private static final int VALID_FILES = 48;
+
+    private static final int INVALID_FILES = 6;
+
+    /**
+     * Small, so every file is committed in many transactions.
+     */
+    private static final int COMMIT_SIZE = 7;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    private final ParseErrorListenerEnabledRDFLoader loader = new ParseErrorListenerEnabledRDFLoader(
+            new ParserConfig(), ValueFactoryImpl.getInstance(), VOCAB);
+
+    private SailRepository repository;
+
+    private final List<File> files = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new SailRepository(new MemoryStore());
+        repository.initialize();
+        for (int i = 0; i < VALID_FILES; i++) {
+            files.add(write("valid-" + i + ".json", records(i, 5 + i % 11)));
+        }
+        for (int i = 0; i < INVALID_FILES; i++) {
+            files.add(write("invalid-" + i + ".json", records(i, 3).substring(0, 40)));
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.shutDown();
+    }
+
+    @Test
+    public void filesIntoOwnGraphs() throws Exception {
+        RunStatistics statistics = new RunStatistics();
+        AtomicBoolean fileSkipped = new AtomicBoolean(false);
+        long committed = convertConcurrently(statistics, fileSkipped, false);
+
+        long expectedTotal = 0L;
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                List<Statement> expected = convertSequentially(files.get(i));
+                List<Statement> actual = getStatements(connection, graph(i));
+                assertEquals(files.get(i).getName(), expected.size(), actual.size());
+                assertTrue(files.get(i).getName(), ModelUtil.equals(expected, actual));
+                expectedTotal += expected.size();
+            }
+        } finally {
+            connection.close();
+        }
+        assertTotals(statistics, fileSkipped, committed, expectedTotal);
+    }
+
+    @Test
+    public void filesIntoSharedGraph() throws Exception {
+        RunStatistics statistics = new RunStatistics();
+        AtomicBoolean fileSkipped = new AtomicBoolean(false);
+        long committed = convertConcurrently(statistics, fileSkipped, true);
+
+        long expectedTotal = 0L;
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            // Blank nodes of different files must stay apart: every valid file is a structure
+            // of its own below its root node, compare them one by one.
+            List<Statement> actual = getStatements(connection, graph(0));
+            Map<String, List<Statement>> actualByFile = splitByFile(actual);
+            assertEquals(VALID_FILES, actualByFile.size());
+            for (int i = 0; i < VALID_FILES; i++) {
+                List<Statement> expected = convertSequentially(files.get(i));
+                assertTrue(files.get(i).getName(), ModelUtil.equals(expected, actualByFile.get(String.valueOf(i))));
+                expectedTotal += expected.size();
+            }
+            assertEquals(expectedTotal, actual.size());
+        } finally {
+            connection.close();
+        }
+        assertTotals(statistics, fileSkipped, committed, expectedTotal);
+    }
+
+    private void assertTotals(RunStatistics statistics, AtomicBoolean fileSkipped, long committed,
+            long expectedTotal) {
+        assertEquals(expectedTotal, committed);
+        assertEquals(expectedTotal, statistics.getStatements());
+        assertEquals(expectedTotal, statistics.getCommittedStatements());
+        assertEquals(VALID_FILES, statistics.getFiles());
+        assertEquals(VALID_FILES, statistics.getFileDurations().size());
+        assertEquals(INVALID_FILES, statistics.getSkippedFiles());
+        assertTrue(fileSkipped.get());
+        assertTrue(statistics.getCommits() >= expectedTotal / COMMIT_SIZE);
+    }
+
+    /**
+     * @return Sum of statements committed by all inserters.
+     */
+    private long convertConcurrently(final RunStatistics statistics, final AtomicBoolean fileSkipped,
+            final boolean sharedGraph) throws Exception {
+        final AtomicLong committed = new AtomicLong();
+        // All threads start converting at the same time.
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> results = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                final File file = files.get(i);
+                final URI graph = graph(sharedGraph ? 0 : i);
+                results.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        start.await();
+                        RepositoryConnection connection = repository.getConnection();
+                        try {
+                            CancellableCommitSizeInserter inserter = new CancellableCommitSizeInserter(connection,
+                                    COMMIT_SIZE, null);
+                            inserter.enforceContext(graph);
+                            ConversionProgress progress = new ConversionProgress(null, file.getName(),
+                                    file.length(), statistics);
+                            inserter.setProgress(progress);
+                            inserter.setStatistics(statistics);
+                            try (InputStream in = new ProgressInputStream(new FileInputStream(file), progress)) {
+                                loader.load(in, file.toURI().toString(), null, inserter, new ParseErrorLogger());
+                                progress.finished();
+                            } catch (IOException ex) {
+                                if (connection.isActive()) {
+                                    connection.rollback();
+                                }
+                                fileSkipped.set(true);
+                                statistics.fileSkipped();
+                            }
+                            committed.addAndGet(inserter.getCommittedStatements());
+                        } finally {
+                            connection.close();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        }
+        return committed.get();
+    }
+
+    private List<Statement> convertSequentially(File file) throws Exception {
+        StatementCollector collector = new StatementCollector();
+        try {
+            loader.load(file, null, null, collector, new ParseErrorLogger());
+        } catch (IOException ex) {
+            // Invalid file, converts to nothing.
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(collector.getStatements());
+    }
+
+    private List<Statement> getStatements(RepositoryConnection connection, URI graph) throws Exception {
+        List<Statement> statements = new ArrayList<>();
+        RepositoryResult<Statement> result = connection.getStatements(null, null, null, false, graph);
+        try {
+            while (result.hasNext()) {
+                Statement st = result.next();
+                statements.add(vf.createStatement(st.getSubject(), st.getPredicate(), st.getObject()));
+            }
+        } finally {
+            result.close();
+        }
+        return statements;
+    }
+
+    /**
+     * @return Statements connected by blank nodes, by the file number of their records.
+     */
+    private static Map<String, List<Statement>> splitByFile(List<Statement> statements) {
+        Map<Value, Value> parents = new HashMap<>();
+        for (Statement st : statements) {
+            if (st.getObject() instanceof BNode) {
+                Value subject = find(parents, st.getSubject());
+                Value object = find(parents, st.getObject());
+                if (!subject.equals(object)) {
+                    parents.put(object, subject);
+                }
+            }
+        }
+        Map<Value, List<Statement>> components = new HashMap<>();
+        for (Statement st : statements) {
+            Value component = find(parents, st.getSubject());
+            if (!components.containsKey(component)) {
+                components.put(component, new ArrayList<Statement>());
+            }
+            components.get(component).add(st);
+        }
+        Map<String, List<Statement>> byFile = new HashMap<>();
+        for (List<Statement> component : components.values()) {
+            for (Statement st : component) {
+                if (st.getPredicate().stringValue().equals(VOCAB + "file")) {
+                    byFile.put(st.getObject().stringValue(), component);
+                    break;
+                }
+            }
+        }
+        return byFile;
+    }
+
+    private static Value find(Map<Value, Value> parents, Value node) {
+        while (parents.containsKey(node)) {
+            node = parents.get(node);
+        }
+        return node;
+    }
+
+    private URI graph(int index) {
+        return vf.createURI("http://example.com/graph/" + index);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * @return Array of records with nested objects, values repeat across records and files.
+     */
+    private static String records(int file, int count) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append(String.format("{\"id\":%d,\"name\":\"record %d\",\"file\":%d,"
+                    + "\"address\":{\"city\":\"city %d\",\"zip\":\"%05d\"},\"tags\":[\"a\",\"b%d\"]}",
+                    i, i, file, i % 3, i % 7, i % 2));
+        }
+        return json.append(']').toString();
+    }
+}
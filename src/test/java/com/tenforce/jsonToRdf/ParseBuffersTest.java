@@ -0,0 +1,102 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.github.jsonldjava.utils.JsonUtils;
+
+/**
+ * Compares what reading a document allocates with {@link ParseBuffers} and with the
+ * {@link JsonUtils} path used before, measured by the JVM for the current thread.
+ */
+public class ParseBuffersTest {
+
+    private static final int WARM_UP = 2000;
+
+    private static final int DOCUMENTS = 2000;
+
+    private static final byte[] RECORD = ("{\"id\":1,\"name\":\"one\",\"active\":true,"
+            + "\"address\":{\"street\":\"Main Street 1\",\"city\":\"Brussels\",\"zip\":\"1000\"},"
+            + "\"tags\":[\"a\",\"b\",\"c\"],\"score\":1.5}").getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Reads one document the way the loader does.
+     */
+    private interface Reader {
+
+        Object read(byte[] document) throws Exception;
+    }
+
+    private static final Reader PARSE_BUFFERS = new Reader() {
+
+        @Override
+        public Object read(byte[] document) throws Exception {
+            byte[] buffer = ParseBuffers.acquire();
+            try {
+                return ParseBuffers.readJson(ParseBuffers.buffered(new ByteArrayInputStream(document), buffer));
+            } finally {
+                ParseBuffers.release(buffer);
+            }
+        }
+    };
+
+    private static final Reader JSON_UTILS = new Reader() {
+
+        @Override
+        public Object read(byte[] document) throws Exception {
+            InputStream in = new BufferedInputStream(new ByteArrayInputStream(document), 1024);
+            return JsonUtils.fromInputStream(in);
+        }
+    };
+
+    @Test
+    public void readsSameAsJsonUtils() throws Exception {
+        assertEquals(JSON_UTILS.read(RECORD), PARSE_BUFFERS.read(RECORD));
+    }
+
+    @Test
+    public void buffersAreReused() {
+        byte[] buffer = ParseBuffers.acquire();
+        ParseBuffers.release(buffer);
+        assertSame(buffer, ParseBuffers.acquire());
+    }
+
+    @Test
+    public void allocatesLessPerDocumentThanJsonUtils() throws Exception {
+        long parseBuffers = allocatedPerDocument(PARSE_BUFFERS);
+        long jsonUtils = allocatedPerDocument(JSON_UTILS);
+        String message = String.format("ParseBuffers %d bytes, JsonUtils %d bytes per document", parseBuffers,
+                jsonUtils);
+        assertTrue(message, parseBuffers * 2 < jsonUtils);
+    }
+
+    /**
+     * @return Bytes allocated by the current thread for reading one document.
+     */
+    private static long allocatedPerDocument(Reader reader) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        long thread = Thread.currentThread().getId();
+        for (int i = 0; i < WARM_UP; i++) {
+            reader.read(RECORD);
+        }
+        long before = allocation.getThreadAllocatedBytes(thread);
+        assumeTrue(before >= 0L);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            reader.read(RECORD);
+        }
+        return (allocation.getThreadAllocatedBytes(thread) - before) / DOCUMENTS;
+    }
+}
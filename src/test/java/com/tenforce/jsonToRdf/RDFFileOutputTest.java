@@ -0,0 +1,188 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.model.Value;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.rio.ParserConfig;
+import org.openrdf.rio.RDFFormat;
+import org.openrdf.rio.RDFParser;
+import org.openrdf.rio.Rio;
+import org.openrdf.rio.helpers.ParseErrorLogger;
+import org.openrdf.rio.helpers.StatementCollector;
+
+public class RDFFileOutputTest {
+
+    private static final String VOCAB = "http://example.com/vocab/";
+
+    private static final String RECORD = "{\"a\":{\"n\":\"one\"}}";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ParseErrorListenerEnabledRDFLoader loader = new ParseErrorListenerEnabledRDFLoader(
+            new ParserConfig(), ValueFactoryImpl.getInstance(), VOCAB);
+
+    private final List<File> files = new ArrayList<>();
+
+    private final RDFFileOutput.FileFactory fileFactory = new RDFFileOutput.FileFactory() {
+
+        @Override
+        public File createFile(int part, String extension) throws Exception {
+            File file = folder.newFile("output-" + part + extension);
+            files.add(file);
+            return file;
+        }
+    };
+
+    /**
+     * Entries of a zip are documents of their own, they do not share blank nodes in the
+     * output.
+     */
+    @Test
+    public void zipEntriesKeepBlankNodesApart() throws Exception {
+        RDFFileOutput output = new RDFFileOutput(fileFactory, RDFFormat.NTRIPLES, false, 0L);
+        write(output, 1L, zip(RECORD, RECORD));
+        write(output, 2L, RECORD.getBytes(StandardCharsets.UTF_8));
+        output.close();
+
+        List<Statement> statements = read(files.get(0));
+        assertEquals(6, statements.size());
+        assertEquals(6, blankNodes(statements).size());
+    }
+
+    @Test
+    public void discardedDocumentLeavesNothing() throws Exception {
+        RDFFileOutput output = new RDFFileOutput(fileFactory, RDFFormat.NTRIPLES, false, 0L);
+        RDFFileOutput.Document document = output.startDocument(1L, null);
+        loader.load(new ByteArrayInputStream(RECORD.getBytes(StandardCharsets.UTF_8)), VOCAB, null, document,
+                new ParseErrorLogger());
+        document.discard();
+        // The discarded document is cut off the output file.
+        assertEquals(0L, files.get(0).length());
+
+        write(output, 2L, "{\"n\":\"two\"}".getBytes(StandardCharsets.UTF_8));
+        output.close();
+
+        List<Statement> statements = read(files.get(0));
+        assertEquals(1, statements.size());
+        assertEquals("two", statements.get(0).getObject().stringValue());
+    }
+
+    /**
+     * A document discarded after others have been written is cut off the file, compressed or
+     * not, and the file goes on with the next document.
+     */
+    @Test
+    public void discardedDocumentIsCutOff() throws Exception {
+        for (boolean compress : new boolean[] { false, true }) {
+            files.clear();
+            RDFFileOutput output = new RDFFileOutput(fileFactory, RDFFormat.NTRIPLES, compress, 0L);
+            write(output, 1L, RECORD.getBytes(StandardCharsets.UTF_8));
+            long committed = files.get(0).length();
+            RDFFileOutput.Document document = output.startDocument(2L, null);
+            try {
+                // Fails in the second item, after the first one has been written.
+                loader.load(new ByteArrayInputStream("[{\"n\":\"bad\"},{\"n\":".getBytes(StandardCharsets.UTF_8)),
+                        VOCAB, null, document, new ParseErrorLogger());
+                fail("Document is not complete.");
+            } catch (Exception ex) {
+                document.discard();
+            }
+            assertEquals(committed, files.get(0).length());
+            write(output, 3L, "{\"n\":\"two\"}".getBytes(StandardCharsets.UTF_8));
+            output.close();
+
+            List<Statement> statements = read(files.get(0));
+            assertEquals(3, statements.size());
+            for (Statement st : statements) {
+                assertFalse("bad".equals(st.getObject().stringValue()));
+            }
+        }
+    }
+
+    @Test
+    public void documentsAreNotSplitBetweenFiles() throws Exception {
+        RDFFileOutput output = new RDFFileOutput(fileFactory, RDFFormat.NTRIPLES, true, 1L);
+        write(output, 1L, zip(RECORD, RECORD));
+        write(output, 2L, RECORD.getBytes(StandardCharsets.UTF_8));
+        output.close();
+
+        assertEquals(2, files.size());
+        assertEquals(4, read(files.get(0)).size());
+        assertEquals(2, read(files.get(1)).size());
+    }
+
+    private void write(RDFFileOutput output, long documentScope, byte[] content) throws Exception {
+        RDFFileOutput.Document document = output.startDocument(documentScope, null);
+        try {
+            loader.load(new ByteArrayInputStream(content), VOCAB, null, document, new ParseErrorLogger());
+            document.commit();
+        } finally {
+            document.discard();
+        }
+    }
+
+    private static List<Statement> read(File file) throws Exception {
+        StatementCollector collector = new StatementCollector();
+        RDFParser parser = Rio.createParser(RDFFormat.NTRIPLES);
+        parser.setRDFHandler(collector);
+        InputStream in = new FileInputStream(file);
+        try {
+            if (file.getName().endsWith(".gz")) {
+                in = new GZIPInputStream(in);
+            }
+            parser.parse(in, "");
+        } finally {
+            in.close();
+        }
+        return new ArrayList<>(collector.getStatements());
+    }
+
+    private static Set<Value> blankNodes(List<Statement> statements) {
+        Set<Value> nodes = new HashSet<>();
+        for (Statement st : statements) {
+            if (st.getSubject() instanceof BNode) {
+                nodes.add(st.getSubject());
+            }
+            if (st.getObject() instanceof BNode) {
+                nodes.add(st.getObject());
+            }
+        }
+        return nodes;
+    }
+
+    private static byte[] zip(String... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i++) {
+                zip.putNextEntry(new ZipEntry("entry-" + i + ".json"));
+                zip.write(entries[i].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,126 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Test;
+import org.openrdf.model.BNode;
+import org.openrdf.model.Statement;
+import org.openrdf.model.URI;
+import org.openrdf.model.Value;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.model.util.ModelUtil;
+import org.openrdf.model.vocabulary.XMLSchema;
+import org.openrdf.rio.ParserConfig;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.helpers.ParseErrorLogger;
+import org.openrdf.rio.helpers.StatementCollector;
+
+public class SingleDocumentRDFHandlerTest {
+
+    private static final String VOCAB = "http://example.com/";
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    private final ParseErrorListenerEnabledRDFLoader loader = new ParseErrorListenerEnabledRDFLoader(
+            new ParserConfig(), ValueFactoryImpl.getInstance(), VOCAB);
+
+    /**
+     * Entries of a zip are merged into one document, each with its own blank nodes.
+     */
+    @Test
+    public void zipEntriesKeepBlankNodesApart() throws Exception {
+        List<Statement> statements = convert(zip("{\"a\":{\"n\":\"one\"}}", "{\"a\":{\"n\":\"two\"}}"), null);
+
+        URI a = vf.createURI(VOCAB, "a");
+        URI n = vf.createURI(VOCAB, "n");
+        BNode[] nodes = { vf.createBNode(), vf.createBNode(), vf.createBNode(), vf.createBNode() };
+        List<Statement> expected = new ArrayList<>();
+        expected.add(vf.createStatement(nodes[0], a, nodes[1]));
+        expected.add(vf.createStatement(nodes[1], n, vf.createLiteral("one", XMLSchema.STRING)));
+        expected.add(vf.createStatement(nodes[2], a, nodes[3]));
+        expected.add(vf.createStatement(nodes[3], n, vf.createLiteral("two", XMLSchema.STRING)));
+        assertTrue(statements.toString(), ModelUtil.equals(expected, statements));
+        assertEquals(4, blankNodes(statements).size());
+    }
+
+    @Test
+    public void sameEntriesAreNotMergedWithDeduplication() throws Exception {
+        String record = "{\"a\":{\"n\":\"one\"}}";
+        StatementDeduplicator deduplicator = new StatementDeduplicator(1000);
+        List<Statement> statements = convert(zip(record, record), deduplicator);
+
+        assertEquals(4, statements.size());
+        assertEquals(4, blankNodes(statements).size());
+        assertEquals(0L, deduplicator.getDuplicateCounter());
+    }
+
+    @Test
+    public void statementsGetContext() throws Exception {
+        URI context = vf.createURI("http://example.com/file.json");
+        StatementCollector collector = new StatementCollector();
+        SingleDocumentRDFHandler document = new SingleDocumentRDFHandler(collector, context);
+        document.begin();
+        loader.load(new ByteArrayInputStream("{\"n\":1}".getBytes(StandardCharsets.UTF_8)), VOCAB, null, document,
+                new ParseErrorLogger());
+        document.finish();
+
+        assertEquals(1, collector.getStatements().size());
+        assertEquals(context, collector.getStatements().iterator().next().getContext());
+    }
+
+    private List<Statement> convert(byte[] content, StatementDeduplicator deduplicator) throws Exception {
+        StatementCollector collector = new StatementCollector();
+        SingleDocumentRDFHandler document = new SingleDocumentRDFHandler(collector, null);
+        RDFHandler handler = document;
+        StatementDeduplicator.Filter filter = null;
+        if (deduplicator != null) {
+            filter = deduplicator.wrap(handler, null, 0L);
+            handler = filter;
+        }
+        document.begin();
+        loader.load(new ByteArrayInputStream(content), VOCAB, null, handler, new ParseErrorLogger());
+        document.finish();
+        if (filter != null) {
+            filter.publish();
+        }
+        return new ArrayList<>(collector.getStatements());
+    }
+
+    private static Set<Value> blankNodes(List<Statement> statements) {
+        Set<Value> nodes = new HashSet<>();
+        for (Statement st : statements) {
+            if (st.getSubject() instanceof BNode) {
+                nodes.add(st.getSubject());
+            }
+            if (st.getObject() instanceof BNode) {
+                nodes.add(st.getObject());
+            }
+        }
+        return nodes;
+    }
+
+    private static byte[] zip(String... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i++) {
+                zip.putNextEntry(new ZipEntry("entry-" + i + ".json"));
+                zip.write(entries[i].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
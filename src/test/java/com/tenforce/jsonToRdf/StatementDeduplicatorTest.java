@@ -0,0 +1,215 @@
+package com.tenforce.jsonToRdf;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openrdf.model.URI;
+import org.openrdf.model.ValueFactory;
+import org.openrdf.model.impl.ValueFactoryImpl;
+import org.openrdf.repository.RepositoryConnection;
+import org.openrdf.repository.sail.SailRepository;
+import org.openrdf.rio.ParserConfig;
+import org.openrdf.rio.RDFHandler;
+import org.openrdf.rio.helpers.ParseErrorLogger;
+import org.openrdf.rio.helpers.StatementCollector;
+import org.openrdf.sail.memory.MemoryStore;
+
+public class StatementDeduplicatorTest {
+
+    private static final String VOCAB = "http://example.com/vocab/";
+
+    private static final String RECORD = "{\"a\":{\"n\":\"one\"}}";
+
+    private final ValueFactory vf = ValueFactoryImpl.getInstance();
+
+    private final URI graph = vf.createURI("http://example.com/graph");
+
+    private final ParseErrorListenerEnabledRDFLoader loader = new ParseErrorListenerEnabledRDFLoader(
+            new ParserConfig(), ValueFactoryImpl.getInstance(), VOCAB);
+
+    private SailRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new SailRepository(new MemoryStore());
+        repository.initialize();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        repository.shutDown();
+    }
+
+    /**
+     * Both entries of a zip are documents of their own with their own blank nodes, the
+     * statements of the second entry are not duplicates of the first one.
+     */
+    @Test
+    public void zipEntriesWithSameRecordAreKept() throws Exception {
+        byte[] zip = zip(RECORD, RECORD);
+        StatementDeduplicator deduplicator = new StatementDeduplicator(1000);
+
+        assertEquals(4L, insert(zip, deduplicator, 1L));
+        assertEquals(4L, size());
+        assertEquals(0L, deduplicator.getDuplicateCounter());
+        assertEquals(4L, deduplicator.getStatementCounter());
+    }
+
+    @Test
+    public void deduplicationDoesNotChangeInsertedGraph() throws Exception {
+        byte[] zip = zip(RECORD, RECORD, "{\"a\":{\"n\":\"two\"}}");
+        insert(zip, null, 1L);
+        long expected = size();
+        clear();
+
+        insert(zip, new StatementDeduplicator(1000), 1L);
+        assertEquals(expected, size());
+    }
+
+    @Test
+    public void filesWithSameRecordAreKept() throws Exception {
+        StatementDeduplicator deduplicator = new StatementDeduplicator(1000);
+        byte[] json = RECORD.getBytes(StandardCharsets.UTF_8);
+
+        insert(json, deduplicator, 1L);
+        insert(json, deduplicator, 2L);
+        assertEquals(4L, size());
+        assertEquals(0L, deduplicator.getDuplicateCounter());
+    }
+
+    /**
+     * Statements without blank nodes are duplicates whatever document they come from.
+     */
+    @Test
+    public void groundStatementsAreDroppedAcrossDocuments() throws Exception {
+        StatementDeduplicator deduplicator = new StatementDeduplicator(1000);
+        StatementCollector collector = new StatementCollector();
+        URI subject = vf.createURI("http://example.com/s");
+        URI predicate = vf.createURI(VOCAB, "p");
+
+        StatementDeduplicator.Filter filter = deduplicator.wrap(collector, graph, 1L);
+        for (int document = 0; document < 2; document++) {
+            filter.startRDF();
+            filter.handleStatement(vf.createStatement(subject, predicate, vf.createLiteral("x")));
+            filter.handleStatement(vf.createStatement(subject, predicate, vf.createLiteral("x")));
+            filter.endRDF();
+        }
+        filter.publish();
+
+        filter = deduplicator.wrap(collector, graph, 2L);
+        filter.startRDF();
+        filter.handleStatement(vf.createStatement(subject, predicate, vf.createLiteral("x")));
+        filter.endRDF();
+        filter.publish();
+
+        assertEquals(1, collector.getStatements().size());
+        assertEquals(5L, deduplicator.getStatementCounter());
+        assertEquals(4L, deduplicator.getDuplicateCounter());
+    }
+
+    /**
+     * A language tag and a datatype with the same text are different literals.
+     */
+    @Test
+    public void languageAndDatatypeDoNotCollide() throws Exception {
+        StatementDeduplicator deduplicator = new StatementDeduplicator(1000);
+        StatementCollector collector = new StatementCollector();
+        URI subject = vf.createURI("http://example.com/s");
+        URI predicate = vf.createURI(VOCAB, "p");
+
+        StatementDeduplicator.Filter filter = deduplicator.wrap(collector, graph, 1L);
+        filter.startRDF();
+        filter.handleStatement(vf.createStatement(subject, predicate, vf.createLiteral("x", "urn:en")));
+        filter.handleStatement(vf.createStatement(subject, predicate, vf.createLiteral("x", vf.createURI("urn:en"))));
+        filter.endRDF();
+        filter.publish();
+
+        assertEquals(2, collector.getStatements().size());
+        assertEquals(0L, deduplicator.getDuplicateCounter());
+    }
+
+    /**
+     * Fingerprints of a file outgrow the initial pending table and are all published.
+     */
+    @Test
+    public void largeFileIsPublished() throws Exception {
+        StatementDeduplicator deduplicator = new StatementDeduplicator(100000);
+        URI subject = vf.createURI("http://example.com/s");
+        URI predicate = vf.createURI(VOCAB, "p");
+        for (int file = 0; file < 2; file++) {
+            StatementDeduplicator.Filter filter = deduplicator.wrap(new StatementCollector(), graph, file);
+            filter.startRDF();
+            for (int i = 0; i < 5000; i++) {
+                filter.handleStatement(vf.createStatement(subject, predicate, vf.createLiteral(i)));
+            }
+            filter.endRDF();
+            filter.publish();
+        }
+        assertEquals(10000L, deduplicator.getStatementCounter());
+        assertEquals(5000L, deduplicator.getDuplicateCounter());
+    }
+
+    /**
+     * @return Number of committed statements.
+     */
+    private long insert(byte[] content, StatementDeduplicator deduplicator, long documentScope) throws Exception {
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            CancellableCommitSizeInserter inserter = new CancellableCommitSizeInserter(connection, 1000, null);
+            inserter.enforceContext(graph);
+            RDFHandler handler = inserter;
+            StatementDeduplicator.Filter filter = null;
+            if (deduplicator != null) {
+                filter = deduplicator.wrap(inserter, graph, documentScope);
+                handler = filter;
+            }
+            loader.load(new ByteArrayInputStream(content), "http://example.com/", null, handler,
+                    new ParseErrorLogger());
+            if (filter != null) {
+                filter.publish();
+            }
+            return inserter.getCommittedStatements();
+        } finally {
+            connection.close();
+        }
+    }
+
+    private long size() throws Exception {
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            return connection.size(graph);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private void clear() throws Exception {
+        RepositoryConnection connection = repository.getConnection();
+        try {
+            connection.clear(graph);
+        } finally {
+            connection.close();
+        }
+    }
+
+    private static byte[] zip(String... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i++) {
+                zip.putNextEntry(new ZipEntry("entry-" + i + ".json"));
+                zip.write(entries[i].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}